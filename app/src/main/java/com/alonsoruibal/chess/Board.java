@@ -5,9 +5,11 @@ import com.alonsoruibal.chess.bitboard.BitboardAttacks;
 import com.alonsoruibal.chess.bitboard.BitboardUtils;
 import com.alonsoruibal.chess.hash.ZobristKey;
 import com.alonsoruibal.chess.movegen.LegalMoveGenerator;
+import com.alonsoruibal.chess.movegen.Perft;
 
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Map;
+
 
 /**
  * Stores the position and the move history
@@ -19,13 +21,12 @@ import java.util.HashMap;
 // SLightly modified by loloof64
 
 public class Board {
-    public static final int MAX_MOVES = 250;
     public static final String FEN_START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
     public static final String CHESS960_START_POSITIONS[] = {"QNNRKR", "NQNRKR", "NNQRKR", "NNRQKR", "NNRKQR", "NNRKRQ", "QNRNKR", "NQRNKR", "NRQNKR", "NRNQKR", "NRNKQR", "NRNKRQ", "QNRKNR", "NQRKNR", "NRQKNR", "NRKQNR", "NRKNQR", "NRKNRQ", "QNRKRN", "NQRKRN", "NRQKRN", "NRKQRN", "NRKRQN", "NRKRNQ", "QRNNKR", "RQNNKR", "RNQNKR", "RNNQKR", "RNNKQR", "RNNKRQ", "QRNKNR", "RQNKNR", "RNQKNR", "RNKQNR", "RNKNQR", "RNKNRQ", "QRNKRN", "RQNKRN", "RNQKRN", "RNKQRN", "RNKRQN", "RNKRNQ", "QRKNNR", "RQKNNR", "RKQNNR", "RKNQNR", "RKNNQR", "RKNNRQ", "QRKNRN", "RQKNRN", "RKQNRN", "RKNQRN", "RKNRQN", "RKNRNQ", "QRKRNN", "RQKRNN", "RKQRNN", "RKRQNN", "RKRNQN", "RKRNNQ"};
     public static final String CHESS960_START_POSITIONS_BISHOPS[] = {"BB------", "B--B----", "B----B--", "B------B", "-BB-----", "--BB----", "--B--B--", "--B----B", "-B--B---", "---BB---", "----BB--", "----B--B", "-B----B-", "---B--B-", "-----BB-", "------BB"};
 
     // Flags: must be changed only when moving
-    private static final long FLAG_TURN = 0x0001L;
+    static final long FLAG_TURN = 0x0001L;
     private static final long FLAG_WHITE_KINGSIDE_CASTLING = 0x0002L;
     private static final long FLAG_WHITE_QUEENSIDE_CASTLING = 0x0004L;
     private static final long FLAG_BLACK_KINGSIDE_CASTLING = 0x0008L;
@@ -40,14 +41,47 @@ public class Board {
     public static final int CASTLING_ROOK_DESTINY_INDEX[] = {2, 4, 58, 60};
     public static final long CASTLING_ROOK_DESTINY_SQUARE[] = {1L << 2, 1L << 4, 1L << 58, 1L << 60};
 
+    // Values returned by getGameStatus()
+    public static final int GAME_STATUS_NOT_ENDED = 0;
+    public static final int GAME_STATUS_CHECKMATE_WHITE = 1; // white won by checkmate
+    public static final int GAME_STATUS_CHECKMATE_BLACK = 2; // black won by checkmate
+    public static final int GAME_STATUS_STALEMATE = 3;
+    public static final int GAME_STATUS_DRAW_THREE_FOLD_REPETITION = 4;
+    public static final int GAME_STATUS_DRAW_FIFTY_MOVES_RULE = 5;
+    public static final int GAME_STATUS_DRAW_MISSING_MATERIAL = 6;
+
     // For the SEE SWAP algorithm
     public static final int[] SEE_PIECE_VALUES = {0, 100, 325, 330, 500, 900, 9999};
 
+    // Number of positions whose legal moves are remembered
+    public static final int LEGAL_MOVES_CACHE_SIZE = 8;
+
     LegalMoveGenerator legalMoveGenerator = new LegalMoveGenerator();
-    int[] legalMoves = new int[256];
+    int[] legalMoves; // points to the legal moves cache slot of the current position
     int legalMoveCount = -1; // if -1 then legal moves not generated
     long[] legalMovesKey = {0, 0};
-    public HashMap<Integer, String> movesSan;
+    // LRU cache of legal moves by zobrist key, the move arrays are only allocated when a slot is first used
+    final long[] legalMovesCacheKey0 = new long[LEGAL_MOVES_CACHE_SIZE];
+    final long[] legalMovesCacheKey1 = new long[LEGAL_MOVES_CACHE_SIZE];
+    final int[] legalMovesCacheCount = new int[LEGAL_MOVES_CACHE_SIZE];
+    final long[] legalMovesCacheLastUse = new long[LEGAL_MOVES_CACHE_SIZE];
+    final int[][] legalMovesCacheMoves = new int[LEGAL_MOVES_CACHE_SIZE][];
+    int legalMovesCacheSize = 0;
+    long legalMovesCacheClock = 0;
+    long legalMovesCacheHits = 0;
+    long legalMovesCacheMisses = 0;
+    // Legal destinations by origin square, built from the legal moves array of the position with legalTargetsKey
+    final long[] legalTargets = new long[64];
+    final long[] legalTargetsKey = {0, 0};
+    int[] legalTargetsMoves;
+    // Last game status computed, valid for the same key and counters while the history below it is not modified
+    int gameStatus;
+    long gameStatusKey0;
+    long gameStatusKey1;
+    int gameStatusMoveNumber = -1;
+    int gameStatusFiftyMovesRule;
+    // Used to compute the SAN of the moves in the history, only created when a SAN is requested
+    private Board sanBoard;
 
     // Bitboard arrays
     public long whites = 0;
@@ -68,19 +102,18 @@ public class Board {
 
     public String initialFen;
 
-    // History array indexed by moveNumber
-    public long[][] keyHistory; // to detect draw by treefold
-    public int[] moveHistory;
-    public long[] whitesHistory;
-    public long[] blacksHistory;
-    public long[] pawnsHistory;
-    public long[] rooksHistory;
-    public long[] queensHistory;
-    public long[] bishopsHistory;
-    public long[] knightsHistory;
-    public long[] kingsHistory;
-    public long[] flagsHistory;
-    public int[] fiftyMovesRuleHistory;
+    // Reusable buffer for getFen() and the last fen built, valid while the key and the counters do not change
+    private final char[] fenBuffer = new char[128];
+    private String fenCache;
+    private long fenCacheKey0;
+    private long fenCacheKey1;
+    private int fenCacheFiftyMovesRule;
+    private int fenCacheMoveNumber;
+    // When the board was restored from a Position, the initial fen is only built if requested
+    Position initialPosition;
+
+    // History indexed by moveNumber, grown on demand
+    public BoardHistory history;
     public int[] seeGain;
 
     // Origin squares for the castling rook {White Kingside, White Queenside, Black Kingside, Black Queenside}
@@ -91,24 +124,10 @@ public class Board {
     BitboardAttacks bbAttacks;
 
     public Board() {
-        whitesHistory = new long[MAX_MOVES];
-        blacksHistory = new long[MAX_MOVES];
-        pawnsHistory = new long[MAX_MOVES];
-        knightsHistory = new long[MAX_MOVES];
-        bishopsHistory = new long[MAX_MOVES];
-        rooksHistory = new long[MAX_MOVES];
-        queensHistory = new long[MAX_MOVES];
-        kingsHistory = new long[MAX_MOVES];
-        flagsHistory = new long[MAX_MOVES];
-        keyHistory = new long[MAX_MOVES][2];
-        fiftyMovesRuleHistory = new int[MAX_MOVES];
+        history = new BoardHistory();
 
         seeGain = new int[32];
 
-        moveHistory = new int[MAX_MOVES];
-
-        movesSan = new HashMap<>();
-
         bbAttacks = BitboardAttacks.getInstance();
     }
 
@@ -296,54 +315,98 @@ public class Board {
     }
 
     /**
-     * Converts board to its fen notation
+     * Converts board to its fen notation.
+     * The fen is written char by char into a reusable buffer and it is cached until the key or the counters change.
      */
     public String getFen() {
-        StringBuilder sb = new StringBuilder();
+        if (fenCache != null && fenCacheKey0 == key[0] && fenCacheKey1 == key[1]
+                && fenCacheFiftyMovesRule == fiftyMovesRule && fenCacheMoveNumber == moveNumber) {
+            return fenCache;
+        }
+        char[] buffer = fenBuffer;
+        int length = 0;
+        int empty = 0;
         long i = Square.A8;
-        int j = 0;
         while (i != 0) {
             char p = getPieceAt(i);
             if (p == '.') {
-                j++;
-            }
-            if ((j != 0) && (p != '.' || ((i & BitboardUtils.b_r) != 0))) {
-                sb.append(j);
-                j = 0;
-            }
-            if (p != '.') {
-                sb.append(p);
+                empty++;
+            } else {
+                if (empty != 0) {
+                    buffer[length++] = (char) ('0' + empty);
+                    empty = 0;
+                }
+                buffer[length++] = p;
             }
-            if ((i != 1) && (i & BitboardUtils.b_r) != 0) {
-                sb.append("/");
+            if ((i & BitboardUtils.b_r) != 0) {
+                if (empty != 0) {
+                    buffer[length++] = (char) ('0' + empty);
+                    empty = 0;
+                }
+                if (i != 1) {
+                    buffer[length++] = '/';
+                }
             }
             i >>>= 1;
         }
-        sb.append(" ");
-        sb.append((getTurn() ? "w" : "b"));
-        sb.append(" ");
-        if (getWhiteKingsideCastling()) {
-            sb.append("K");
-        }
-        if (getWhiteQueensideCastling()) {
-            sb.append("Q");
-        }
-        if (getBlackKingsideCastling()) {
-            sb.append("k");
+        buffer[length++] = ' ';
+        buffer[length++] = getTurn() ? 'w' : 'b';
+        buffer[length++] = ' ';
+        if ((flags & (FLAG_WHITE_KINGSIDE_CASTLING | FLAG_WHITE_QUEENSIDE_CASTLING | FLAG_BLACK_KINGSIDE_CASTLING | FLAG_BLACK_QUEENSIDE_CASTLING)) == 0) {
+            buffer[length++] = '-';
+        } else {
+            if (getWhiteKingsideCastling()) {
+                buffer[length++] = 'K';
+            }
+            if (getWhiteQueensideCastling()) {
+                buffer[length++] = 'Q';
+            }
+            if (getBlackKingsideCastling()) {
+                buffer[length++] = 'k';
+            }
+            if (getBlackQueensideCastling()) {
+                buffer[length++] = 'q';
+            }
         }
-        if (getBlackQueensideCastling()) {
-            sb.append("q");
+        buffer[length++] = ' ';
+        long passant = getPassantSquare();
+        if (passant != 0) {
+            int passantIndex = BitboardUtils.square2Index(passant);
+            buffer[length++] = (char) ('h' - (passantIndex & 7));
+            buffer[length++] = (char) ('1' + (passantIndex >> 3));
+        } else {
+            buffer[length++] = '-';
         }
-        if (!getWhiteQueensideCastling() && !getWhiteKingsideCastling() && !getBlackQueensideCastling() && !getBlackKingsideCastling()) {
-            sb.append("-");
+        buffer[length++] = ' ';
+        length = appendFenInt(buffer, length, fiftyMovesRule);
+        buffer[length++] = ' ';
+        length = appendFenInt(buffer, length, (moveNumber >> 1) + 1); // 0,1->1.. 2,3->2
+
+        fenCache = new String(buffer, 0, length);
+        fenCacheKey0 = key[0];
+        fenCacheKey1 = key[1];
+        fenCacheFiftyMovesRule = fiftyMovesRule;
+        fenCacheMoveNumber = moveNumber;
+        return fenCache;
+    }
+
+    private static int appendFenInt(char[] buffer, int length, int value) {
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
         }
-        sb.append(" ");
-        sb.append((getPassantSquare() != 0 ? BitboardUtils.square2Algebraic(getPassantSquare()) : "-"));
-        sb.append(" ");
-        sb.append(fiftyMovesRule);
-        sb.append(" ");
-        sb.append((moveNumber >> 1) + 1); // 0,1->1.. 2,3->2
-        return sb.toString();
+        int end = length;
+        int remaining = value;
+        do {
+            end++;
+            remaining /= 10;
+        } while (remaining != 0);
+        int position = end;
+        do {
+            buffer[--position] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        return end;
     }
 
     /**
@@ -357,6 +420,21 @@ public class Board {
      * Sets fen without destroying move history. If lastMove = null destroy the move history
      */
     public void setFenMove(String fen, String lastMove) {
+        setFenMove(fen, lastMove, false);
+    }
+
+    /**
+     * Reinitializes the board in place from a fen, destroying the move history even if the position is the same.
+     * Allows to reuse the instance (and all its arrays) instead of creating a new Board.
+     */
+    public void reset(String fen) {
+        setFenMove(fen, null, true);
+    }
+
+    private void setFenMove(String fen, String lastMove, boolean forceReset) {
+        if (forceReset) {
+            chess960 = false;
+        }
         long tmpWhites = 0;
         long tmpBlacks = 0;
         long tmpPawns = 0;
@@ -370,46 +448,70 @@ public class Board {
         long tmpCastlingRooks[] = {0, 0, 0, 0};
         int fenMoveNumber = 0;
 
-        int i = 0;
-        long j = Square.A8;
-        String[] tokens = fen.split("[ \\t\\n\\x0B\\f\\r]+");
-        String board = tokens[0];
-
-        while ((i < board.length()) && (j != 0)) {
-            char p = board.charAt(i++);
-            if (p != '/') {
-                int number = 0;
-                try {
-                    number = Integer.parseInt(String.valueOf(p));
-                } catch (Exception ignored) {
-                }
+        // The fen is parsed char by char, start and end delimit the current field
+        int length = fen.length();
+        int start = skipFenSeparators(fen, 0);
+        int end = fenFieldEnd(fen, start);
 
-                for (int k = 0; k < (number == 0 ? 1 : number); k++) {
-                    tmpWhites = (tmpWhites & ~j) | ((number == 0) && (p == Character.toUpperCase(p)) ? j : 0);
-                    tmpBlacks = (tmpBlacks & ~j) | ((number == 0) && (p == Character.toLowerCase(p)) ? j : 0);
-                    tmpPawns = (tmpPawns & ~j) | (Character.toUpperCase(p) == 'P' ? j : 0);
-                    tmpRooks = (tmpRooks & ~j) | (Character.toUpperCase(p) == 'R' ? j : 0);
-                    tmpQueens = (tmpQueens & ~j) | (Character.toUpperCase(p) == 'Q' ? j : 0);
-                    tmpBishops = (tmpBishops & ~j) | (Character.toUpperCase(p) == 'B' ? j : 0);
-                    tmpKnights = (tmpKnights & ~j) | (Character.toUpperCase(p) == 'N' ? j : 0);
-                    tmpKings = (tmpKings & ~j) | (Character.toUpperCase(p) == 'K' ? j : 0);
+        long j = Square.A8;
+        for (int i = start; i < end && j != 0; i++) {
+            char p = fen.charAt(i);
+            if (p == '/') {
+                continue;
+            }
+            if (p >= '1' && p <= '8') {
+                j >>>= p - '0';
+                continue;
+            }
+            switch (p) {
+                case 'P':
+                case 'p':
+                    tmpPawns |= j;
+                    break;
+                case 'N':
+                case 'n':
+                    tmpKnights |= j;
+                    break;
+                case 'B':
+                case 'b':
+                    tmpBishops |= j;
+                    break;
+                case 'R':
+                case 'r':
+                    tmpRooks |= j;
+                    break;
+                case 'Q':
+                case 'q':
+                    tmpQueens |= j;
+                    break;
+                case 'K':
+                case 'k':
+                    tmpKings |= j;
+                    break;
+                default:
+                    // Unknown chars leave the square empty
                     j >>>= 1;
-                    if (j == 0) {
-                        break; // security
-                    }
-                }
+                    continue;
+            }
+            if (p < 'a') {
+                tmpWhites |= j;
+            } else {
+                tmpBlacks |= j;
             }
+            j >>>= 1;
         }
 
         // Now the rest ...
-        String turn = tokens[1];
+        start = skipFenSeparators(fen, end);
+        end = fenFieldEnd(fen, start);
         tmpFlags = 0;
-        if ("b".equals(turn)) {
+        if (end - start == 1 && fen.charAt(start) == 'b') {
             tmpFlags |= FLAG_TURN;
         }
-        if (tokens.length > 2) {
+        start = skipFenSeparators(fen, end);
+        if (start < length) {
             // Set castling rights supporting XFEN to disambiguate positions in Chess960
-            String castlings = tokens[2];
+            end = fenFieldEnd(fen, start);
 
             chess960 = false;
             // Squares to the sides of the kings {White Kingside, White Queenside, Black Kingside, Black Queenside}
@@ -420,8 +522,8 @@ public class Board {
             // Squares where we can find a castling rook
             long possibleCastlingRookSquares[] = {0, 0, 0, 0};
 
-            for (int k = 0; k < castlings.length(); k++) {
-                char c = castlings.charAt(k);
+            for (int k = start; k < end; k++) {
+                char c = fen.charAt(k);
                 switch (c) {
                     case 'K':
                         possibleCastlingRookSquares[0] = whiteKingLateralSquares[0];
@@ -437,8 +539,8 @@ public class Board {
                         break;
                     default:
                         // Shredder-FEN receives the name of the file where the castling rook is
-                        int whiteFile = "ABCDEFGH".indexOf(c);
-                        int blackFile = "abcdefgh".indexOf(c);
+                        int whiteFile = c >= 'A' && c <= 'H' ? c - 'A' : -1;
+                        int blackFile = c >= 'a' && c <= 'h' ? c - 'a' : -1;
                         if (whiteFile >= 0) {
                             long rookSquare = BitboardUtils.b_d & BitboardUtils.FILE[whiteFile];
                             if ((rookSquare & whiteKingLateralSquares[0]) != 0) {
@@ -490,18 +592,27 @@ public class Board {
             }
             // END FEN castlings
 
-            if (tokens.length > 3) {
-                String passant = tokens[3];
-                tmpFlags |= FLAGS_PASSANT & BitboardUtils.algebraic2Square(passant);
-                if (tokens.length > 4) {
-                    try {
-                        tmpFiftyMovesRule = Integer.parseInt(tokens[4]);
-                    } catch (Exception e) {
+            start = skipFenSeparators(fen, end);
+            if (start < length) {
+                end = fenFieldEnd(fen, start);
+                int passantIndex = end - start == 2 ? BitboardUtils.algebraic2Index(fen, start) : -1;
+                if (passantIndex >= 0) {
+                    tmpFlags |= FLAGS_PASSANT & (1L << passantIndex);
+                }
+                start = skipFenSeparators(fen, end);
+                if (start < length) {
+                    end = fenFieldEnd(fen, start);
+                    tmpFiftyMovesRule = parseFenInt(fen, start, end);
+                    if (tmpFiftyMovesRule == Integer.MIN_VALUE) {
                         tmpFiftyMovesRule = 0;
                     }
-                    if (tokens.length > 5) {
-                        String moveNumberString = tokens[5];
-                        int aux = Integer.parseInt(moveNumberString);
+                    start = skipFenSeparators(fen, end);
+                    if (start < length) {
+                        end = fenFieldEnd(fen, start);
+                        int aux = parseFenInt(fen, start, end);
+                        if (aux == Integer.MIN_VALUE) {
+                            throw new NumberFormatException("Wrong move number in fen: " + fen);
+                        }
                         fenMoveNumber = ((aux > 0 ? aux - 1 : aux) << 1) + ((tmpFlags & FLAG_TURN) == 0 ? 0 : 1);
                         if (fenMoveNumber < 0) {
                             fenMoveNumber = 0;
@@ -512,7 +623,9 @@ public class Board {
         }
 
         // try to apply the last move to see if we are advancing or undoing moves
-        if ((moveNumber + 1) == fenMoveNumber && lastMove != null) {
+        if (forceReset) {
+            moveNumber = fenMoveNumber;
+        } else if ((moveNumber + 1) == fenMoveNumber && lastMove != null) {
             doMove(Move.getFromString(this, lastMove, true));
         } else if (fenMoveNumber < moveNumber) {
             for (int k = moveNumber; k > fenMoveNumber; k--) {
@@ -521,7 +634,8 @@ public class Board {
         }
 
         // Check if board changed or if we can keep the history
-        if (whites != tmpWhites //
+        if (forceReset //
+                || whites != tmpWhites //
                 || blacks != tmpBlacks //
                 || pawns != tmpPawns //
                 || rooks != tmpRooks //
@@ -532,9 +646,8 @@ public class Board {
                 || (flags & FLAG_TURN) != (tmpFlags & FLAG_TURN)) {
 
             // board reset
-            movesSan.clear();
-
             initialFen = fen;
+            initialPosition = null;
             initialMoveNumber = fenMoveNumber;
             moveNumber = fenMoveNumber;
             outBookMove = Integer.MAX_VALUE;
@@ -563,7 +676,7 @@ public class Board {
 
             // and save history
             resetHistory();
-            saveHistory(0, false);
+            saveHistory(0);
         } else {
             if (moveNumber < outBookMove) {
                 outBookMove = Integer.MAX_VALUE;
@@ -571,6 +684,142 @@ public class Board {
         }
     }
 
+    /**
+     * Captures the current position in constant time, without the move history
+     */
+    public Position snapshot() {
+        return new Position(this);
+    }
+
+    /**
+     * Restores a position captured with snapshot() in constant time, destroying the move history
+     */
+    public void restore(Position position) {
+        whites = position.whites;
+        blacks = position.blacks;
+        pawns = position.pawns;
+        rooks = position.rooks;
+        queens = position.queens;
+        bishops = position.bishops;
+        knights = position.knights;
+        kings = position.kings;
+        flags = position.flags;
+
+        castlingRooks[0] = position.whiteKingsideRook;
+        castlingRooks[1] = position.whiteQueensideRook;
+        castlingRooks[2] = position.blackKingsideRook;
+        castlingRooks[3] = position.blackQueensideRook;
+        chess960 = position.chess960;
+
+        key[0] = position.key0;
+        key[1] = position.key1;
+
+        fiftyMovesRule = position.fiftyMovesRule;
+        initialMoveNumber = position.moveNumber;
+        moveNumber = position.moveNumber;
+        outBookMove = Integer.MAX_VALUE;
+
+        initialFen = null;
+        initialPosition = position;
+
+        resetHistory();
+        saveHistory(0);
+    }
+
+    /**
+     * Copies the position of another board field by field, without going through a fen.
+     * With history the moves since the initial position are also copied, so repetitions and SAN are kept,
+     * otherwise the copied position becomes the initial position of this board.
+     */
+    public void copyFrom(Board board, boolean withHistory) {
+        whites = board.whites;
+        blacks = board.blacks;
+        pawns = board.pawns;
+        rooks = board.rooks;
+        queens = board.queens;
+        bishops = board.bishops;
+        knights = board.knights;
+        kings = board.kings;
+        flags = board.flags;
+
+        System.arraycopy(board.castlingRooks, 0, castlingRooks, 0, 4);
+        chess960 = board.chess960;
+
+        key[0] = board.key[0];
+        key[1] = board.key[1];
+
+        fiftyMovesRule = board.fiftyMovesRule;
+        moveNumber = board.moveNumber;
+        outBookMove = board.outBookMove;
+
+        resetHistory();
+        if (withHistory || board.moveNumber == board.initialMoveNumber) {
+            initialMoveNumber = board.initialMoveNumber;
+            initialFen = board.initialFen;
+            initialPosition = board.initialPosition;
+            history.copyFrom(board.history, initialMoveNumber, moveNumber);
+        } else {
+            initialMoveNumber = moveNumber;
+            initialFen = null;
+            initialPosition = new Position(this);
+        }
+        saveHistory(0);
+    }
+
+    /**
+     * Checks if a pseudo-legal move is legal making and unmaking it on this board, the board is left unchanged
+     */
+    public boolean tryMove(int move) {
+        if (doMove(move, true, false)) {
+            undoMove();
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isFenSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    private static int skipFenSeparators(String fen, int index) {
+        while (index < fen.length() && isFenSeparator(fen.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    private static int fenFieldEnd(String fen, int index) {
+        while (index < fen.length() && !isFenSeparator(fen.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Parses a signed integer between start and end, Integer.MIN_VALUE if it is not a number or it overflows an int
+     */
+    private static int parseFenInt(String fen, int start, int end) {
+        if (start >= end) {
+            return Integer.MIN_VALUE;
+        }
+        boolean negative = fen.charAt(start) == '-';
+        if (negative || fen.charAt(start) == '+') {
+            start++;
+            if (start >= end) {
+                return Integer.MIN_VALUE;
+            }
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = fen.charAt(i);
+            if (c < '0' || c > '9' || value > (Integer.MAX_VALUE - (c - '0')) / 10) {
+                return Integer.MIN_VALUE;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
     /**
      * Prints board in one string
      */
@@ -599,49 +848,17 @@ public class Board {
         return sb.toString();
     }
 
-    /**
-     * TODO is it necessary??
-     */
     private void resetHistory() {
-        Arrays.fill(whitesHistory, 0);
-        Arrays.fill(blacksHistory, 0);
-        Arrays.fill(pawnsHistory, 0);
-        Arrays.fill(knightsHistory, 0);
-        Arrays.fill(bishopsHistory, 0);
-        Arrays.fill(rooksHistory, 0);
-        Arrays.fill(queensHistory, 0);
-        Arrays.fill(kingsHistory, 0);
-        Arrays.fill(flagsHistory, 0);
-        for (int i = 0; i < MAX_MOVES; i++) {
-            Arrays.fill(keyHistory[i], 0);
-        }
-        Arrays.fill(fiftyMovesRuleHistory, 0);
-        Arrays.fill(moveHistory, 0);
-        movesSan.clear();
-    }
-
-    private void saveHistory(int move, boolean fillSanInfo) {
-        if (fillSanInfo) {
-            movesSan.put(moveNumber, Move.toSan(this, move));
-        }
-
-        moveHistory[moveNumber] = move;
-        whitesHistory[moveNumber] = whites;
-        blacksHistory[moveNumber] = blacks;
-        pawnsHistory[moveNumber] = pawns;
-        knightsHistory[moveNumber] = knights;
-        bishopsHistory[moveNumber] = bishops;
-        rooksHistory[moveNumber] = rooks;
-        queensHistory[moveNumber] = queens;
-        kingsHistory[moveNumber] = kings;
-        flagsHistory[moveNumber] = flags;
-        keyHistory[moveNumber][0] = key[0];
-        keyHistory[moveNumber][1] = key[1];
-        fiftyMovesRuleHistory[moveNumber] = fiftyMovesRule;
+        history.clear();
+        gameStatusMoveNumber = -1;
+    }
+
+    private void saveHistory(int move) {
+        history.save(moveNumber, move, this);
     }
 
     /**
-     * This is very inefficient because it fills the San info, so it must not be called from inside search
+     * Verifies the legality of the move, so it must not be called from inside search
      */
     public boolean doMove(int move) {
         return doMove(move, true, true);
@@ -649,14 +866,15 @@ public class Board {
 
     /**
      * Moves and also updates the board's zobrist key verify legality, if not
-     * legal undo move and return false
+     * legal undo move and return false.
+     * The SAN of the moves is computed only when requested, so fillSanInfo does not have any cost now.
      */
     public boolean doMove(int move, boolean verifyCheck, boolean fillSanInfo) {
         if (move == Move.NONE) {
             return false;
         }
         // Save history
-        saveHistory(move, fillSanInfo);
+        saveHistory(move);
 
         // Count consecutive moves without capture or without pawn move
         fiftyMovesRule++;
@@ -836,12 +1054,6 @@ public class Board {
         if (verifyCheck) {
             if (isValid()) {
                 setCheckFlags();
-
-                if (fillSanInfo) {
-                    if (isMate()) { // Append # when mate
-                        movesSan.put(moveNumber - 1, movesSan.get(moveNumber - 1).replace("+", "#"));
-                    }
-                }
             } else {
                 undoMove();
                 return false;
@@ -961,19 +1173,12 @@ public class Board {
             return;
         }
         this.moveNumber = moveNumber;
+        if (moveNumber < gameStatusMoveNumber) {
+            // The history before the cached game status may change
+            gameStatusMoveNumber = -1;
+        }
 
-        whites = whitesHistory[moveNumber];
-        blacks = blacksHistory[moveNumber];
-        pawns = pawnsHistory[moveNumber];
-        knights = knightsHistory[moveNumber];
-        bishops = bishopsHistory[moveNumber];
-        rooks = rooksHistory[moveNumber];
-        queens = queensHistory[moveNumber];
-        kings = kingsHistory[moveNumber];
-        flags = flagsHistory[moveNumber];
-        key[0] = keyHistory[moveNumber][0];
-        key[1] = keyHistory[moveNumber][1];
-        fiftyMovesRule = fiftyMovesRuleHistory[moveNumber];
+        history.restore(moveNumber, this);
     }
 
     /**
@@ -1013,12 +1218,14 @@ public class Board {
 
     public boolean isDrawByThreeFoldRepetitions() {
         int repetitions = 0;
-        for (int i = 0; i < (moveNumber - 1); i++) {
-            if (keyHistory[i][0] == key[0] && keyHistory[i][1] == key[1]) {
+        // Only positions with the same side to move and after the last capture or pawn move can be repeated
+        int lowestMoveNumber = Math.max(initialMoveNumber, moveNumber - fiftyMovesRule);
+        for (int i = moveNumber - 2; i >= lowestMoveNumber; i -= 2) {
+            if (history.getKey0(i) == key[0] && history.getKey1(i) == key[1]) {
                 repetitions++;
-            }
-            if (repetitions >= 2) { // with the last one they are 3
-                return true;
+                if (repetitions >= 2) { // with the last one they are 3
+                    return true;
+                }
             }
         }
         return false;
@@ -1044,6 +1251,37 @@ public class Board {
                 );
     }
 
+    /**
+     * Computes in one pass if the game ended and why, returning one of the GAME_STATUS_* values.
+     * The checks follow this order: checkmate, stalemate, threefold repetition, fifty moves rule, missing material.
+     * The result is cached, so repeated queries on the same position are free.
+     */
+    public int getGameStatus() {
+        if (gameStatusMoveNumber == moveNumber && gameStatusKey0 == key[0] && gameStatusKey1 == key[1]
+                && gameStatusFiftyMovesRule == fiftyMovesRule) {
+            return gameStatus;
+        }
+        int status;
+        generateLegalMoves();
+        if (legalMoveCount == 0) {
+            status = getCheck() ? (getTurn() ? GAME_STATUS_CHECKMATE_BLACK : GAME_STATUS_CHECKMATE_WHITE) : GAME_STATUS_STALEMATE;
+        } else if (isDrawByThreeFoldRepetitions()) {
+            status = GAME_STATUS_DRAW_THREE_FOLD_REPETITION;
+        } else if (isDrawByFiftyMovesRule()) {
+            status = GAME_STATUS_DRAW_FIFTY_MOVES_RULE;
+        } else if (isDrawByMissingMaterial()) {
+            status = GAME_STATUS_DRAW_MISSING_MATERIAL;
+        } else {
+            status = GAME_STATUS_NOT_ENDED;
+        }
+        gameStatus = status;
+        gameStatusKey0 = key[0];
+        gameStatusKey1 = key[1];
+        gameStatusMoveNumber = moveNumber;
+        gameStatusFiftyMovesRule = fiftyMovesRule;
+        return status;
+    }
+
     // End of section (added by loloof64)
 
     /**
@@ -1053,14 +1291,8 @@ public class Board {
         if (fiftyMovesRule >= 100) {
             return true;
         }
-        int repetitions = 0;
-        for (int i = 0; i < (moveNumber - 1); i++) {
-            if (keyHistory[i][0] == key[0] && keyHistory[i][1] == key[1]) {
-                repetitions++;
-            }
-            if (repetitions >= 2) { // with the last one they are 3
-                return true;
-            }
+        if (isDrawByThreeFoldRepetitions()) {
+            return true;
         }
         // Draw by no material to mate by FIDE rules
         // https://en.wikipedia.org/wiki/Rules_of_chess#Draws
@@ -1087,24 +1319,38 @@ public class Board {
 
     public int see(int move, AttacksInfo attacksInfo) {
         int them = getTurn() ? 1 : 0;
+        int targetPiece = Move.isCapture(move) ? Move.getPieceCaptured(this, move) : 0;
         if (attacksInfo.boardKey == getKey()
                 && (attacksInfo.attackedSquares[them] & Move.getToSquare(move)) == 0
                 && (attacksInfo.mayPin[them] & Move.getFromSquare(move)) == 0) {
-            return Move.isCapture(move) ? Board.SEE_PIECE_VALUES[Move.getPieceCaptured(this, move)] : 0;
+            return Board.SEE_PIECE_VALUES[targetPiece];
         } else {
-            return see(move);
+            return see(Move.getFromIndex(move), Move.getToIndex(move), Move.getPieceMoved(move), targetPiece, attacksInfo);
         }
     }
 
+    public int see(int fromIndex, int toIndex, int pieceMoved, int targetPiece) {
+        return see(fromIndex, toIndex, pieceMoved, targetPiece, bbAttacks.getIndexAttacks(this, toIndex));
+    }
+
+    /**
+     * Takes the attackers of the destiny square from the attacks info, where they are kept for the next SEEs to the same square
+     */
+    public int see(int fromIndex, int toIndex, int pieceMoved, int targetPiece, AttacksInfo attacksInfo) {
+        return see(fromIndex, toIndex, pieceMoved, targetPiece, attacksInfo.getAttackersTo(this, toIndex));
+    }
+
     /**
      * The SWAP algorithm https://chessprogramming.wikispaces.com/SEE+-+The+Swap+Algorithm
+     * When a piece is removed, only the ray from the destiny square across that piece is recalculated for X-Rays
      */
-    public int see(int fromIndex, int toIndex, int pieceMoved, int targetPiece) {
+    private int see(int fromIndex, int toIndex, int pieceMoved, int targetPiece, long attacks) {
         int d = 0;
         long mayXray = pawns | bishops | rooks | queens; // not kings nor knights
+        long bishopSliders = bishops | queens;
+        long rookSliders = rooks | queens;
         long fromSquare = 0x1L << fromIndex;
         long all = getAll();
-        long attacks = bbAttacks.getIndexAttacks(this, toIndex);
         long fromCandidates;
 
         seeGain[d] = SEE_PIECE_VALUES[targetPiece];
@@ -1115,7 +1361,11 @@ public class Board {
             attacks ^= fromSquare; // reset bit in set to traverse
             all ^= fromSquare; // reset bit in temporary occupancy (for X-Rays)
             if ((fromSquare & mayXray) != 0) {
-                attacks |= bbAttacks.getXrayAttacks(this, toIndex, all);
+                if ((fromSquare & bbAttacks.bishop[toIndex]) != 0) {
+                    attacks |= bbAttacks.getBishopAttacks(toIndex, all) & bishopSliders & all;
+                } else {
+                    attacks |= bbAttacks.getRookAttacks(toIndex, all) & rookSliders & all;
+                }
             }
 
             // Gets the next attacker
@@ -1170,11 +1420,84 @@ public class Board {
      * Generates legal moves for the position when not already generated.
      */
     void generateLegalMoves() {
-        if ((key[0] != legalMovesKey[0]) || (key[1] != legalMovesKey[1])) {
-            legalMoveCount = legalMoveGenerator.generateMoves(this, legalMoves, 0);
-            legalMovesKey[0] = key[0];
-            legalMovesKey[1] = key[1];
+        if (legalMoveCount != -1 && key[0] == legalMovesKey[0] && key[1] == legalMovesKey[1]) {
+            legalMovesCacheHits++;
+            return;
+        }
+        int slot = 0;
+        for (int i = 0; i < legalMovesCacheSize; i++) {
+            if (legalMovesCacheKey0[i] == key[0] && legalMovesCacheKey1[i] == key[1]) {
+                legalMovesCacheHits++;
+                useLegalMovesCacheSlot(i);
+                return;
+            }
+            if (legalMovesCacheLastUse[i] < legalMovesCacheLastUse[slot]) {
+                slot = i;
+            }
+        }
+        legalMovesCacheMisses++;
+        if (legalMovesCacheSize < LEGAL_MOVES_CACHE_SIZE) {
+            slot = legalMovesCacheSize++;
+            legalMovesCacheMoves[slot] = new int[256];
         }
+        legalMovesCacheCount[slot] = legalMoveGenerator.generateMoves(this, legalMovesCacheMoves[slot], 0);
+        legalMovesCacheKey0[slot] = key[0];
+        legalMovesCacheKey1[slot] = key[1];
+        useLegalMovesCacheSlot(slot);
+    }
+
+    private void useLegalMovesCacheSlot(int slot) {
+        legalMovesCacheLastUse[slot] = ++legalMovesCacheClock;
+        legalMoves = legalMovesCacheMoves[slot];
+        legalMoveCount = legalMovesCacheCount[slot];
+        legalMovesKey[0] = key[0];
+        legalMovesKey[1] = key[1];
+    }
+
+    /**
+     * Number of legal move generations served by the legal moves cache
+     */
+    public long getLegalMovesCacheHits() {
+        return legalMovesCacheHits;
+    }
+
+    /**
+     * Number of legal move generations that had to run the move generator
+     */
+    public long getLegalMovesCacheMisses() {
+        return legalMovesCacheMisses;
+    }
+
+    /**
+     * Bitboard of the destination squares of the legal moves from this square, built once per position.
+     * Chess960 castlings have the rook square as destination.
+     */
+    public long legalTargetsFrom(int squareIndex) {
+        generateLegalMoves();
+        if (legalTargetsMoves != legalMoves || legalTargetsKey[0] != key[0] || legalTargetsKey[1] != key[1]) {
+            Arrays.fill(legalTargets, 0);
+            for (int i = 0; i < legalMoveCount; i++) {
+                legalTargets[Move.getFromIndex(legalMoves[i])] |= Move.getToSquare(legalMoves[i]);
+            }
+            legalTargetsMoves = legalMoves;
+            legalTargetsKey[0] = key[0];
+            legalTargetsKey[1] = key[1];
+        }
+        return legalTargets[squareIndex];
+    }
+
+    /**
+     * Number of leaf nodes of the legal move tree at this depth
+     */
+    public long perft(int depth) {
+        return new Perft().perft(this, depth);
+    }
+
+    /**
+     * Perft nodes below each legal move, keyed by the move in UCI notation
+     */
+    public Map<String, Long> perftDivide(int depth) {
+        return new Perft().divide(this, depth);
     }
 
     public int getLegalMoves(int moves[]) {
@@ -1198,15 +1521,74 @@ public class Board {
         return Move.NONE;
     }
 
+    /**
+     * The SAN of the move played at this move number, computed and cached on the first request
+     */
     public String getSanMove(int moveNumber) {
-        return movesSan.get(moveNumber);
+        if (moveNumber < initialMoveNumber || moveNumber >= this.moveNumber) {
+            return null;
+        }
+        String san = history.getSan(moveNumber);
+        if (san == null) {
+            san = computeSanMove(moveNumber);
+            history.setSan(moveNumber, san);
+        }
+        return san;
+    }
+
+    /**
+     * Rebuilds the position before the move in a scratch board to compute its SAN, appending # when mate
+     */
+    private String computeSanMove(int moveNumber) {
+        if (sanBoard == null) {
+            sanBoard = new Board();
+        }
+        sanBoard.chess960 = chess960;
+        System.arraycopy(castlingRooks, 0, sanBoard.castlingRooks, 0, 4);
+        sanBoard.initialMoveNumber = moveNumber;
+        sanBoard.moveNumber = moveNumber;
+        history.restore(moveNumber, sanBoard);
+
+        int move = history.getMove(moveNumber);
+        String san = Move.toSan(sanBoard, move);
+        if (Move.isCheck(move)) {
+            if (moveNumber + 1 == this.moveNumber) {
+                sanBoard.restoreFrom(this);
+            } else {
+                sanBoard.moveNumber = moveNumber + 1;
+                history.restore(moveNumber + 1, sanBoard);
+            }
+            sanBoard.generateLegalMoves();
+            if (sanBoard.legalMoveCount == 0) {
+                san = san.replace("+", "#");
+            }
+        }
+        return san;
+    }
+
+    private void restoreFrom(Board board) {
+        whites = board.whites;
+        blacks = board.blacks;
+        pawns = board.pawns;
+        knights = board.knights;
+        bishops = board.bishops;
+        rooks = board.rooks;
+        queens = board.queens;
+        kings = board.kings;
+        flags = board.flags;
+        key[0] = board.key[0];
+        key[1] = board.key[1];
+        fiftyMovesRule = board.fiftyMovesRule;
     }
 
     public boolean getMoveTurn(int moveNumber) {
-        return (flagsHistory[moveNumber] & FLAG_TURN) == 0;
+        return (history.getFlags(moveNumber) & FLAG_TURN) == 0;
     }
 
     public String getInitialFen() {
+        if (initialFen == null && initialPosition != null) {
+            initialFen = initialPosition.getFen();
+        }
         return initialFen;
     }
 
@@ -1216,7 +1598,7 @@ public class Board {
             if (oSB.length() > 0) {
                 oSB.append(" ");
             }
-            oSB.append(Move.toString(moveHistory[i]));
+            oSB.append(Move.toString(history.getMove(i)));
         }
         return oSB.toString();
     }
@@ -1227,7 +1609,7 @@ public class Board {
             if (oSB.length() > 0) {
                 oSB.append(" ");
             }
-            oSB.append(movesSan.get(i));
+            oSB.append(getSanMove(i));
         }
         return oSB.toString();
     }
@@ -1262,14 +1644,14 @@ public class Board {
         if (moveNumber == 0) {
             return Move.NONE;
         }
-        return moveHistory[moveNumber - 1];
+        return history.getMove(moveNumber - 1);
     }
 
     public String getLastMoveSan() {
         if (moveNumber == 0) {
             return null;
         }
-        return movesSan.get(moveNumber - 1);
+        return getSanMove(moveNumber - 1);
     }
 
     /**
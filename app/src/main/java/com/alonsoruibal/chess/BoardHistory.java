@@ -0,0 +1,211 @@
+package com.alonsoruibal.chess;
+
+import java.util.Arrays;
+
+/**
+ * Stores the board history indexed by move number (ply).
+ * The storage is split in fixed-size chunks allocated on demand, so a board that only validates a few moves
+ * allocates a single small chunk, while long games have no ply limit.
+ * Each chunk interleaves all the longs of a ply (bitboards, flags and keys) to keep them in the same cache lines.
+ */
+public class BoardHistory {
+	static final int CHUNK_SHIFT = 4;
+	static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	// Offsets of each field inside a ply record
+	static final int WHITES = 0;
+	static final int BLACKS = 1;
+	static final int PAWNS = 2;
+	static final int KNIGHTS = 3;
+	static final int BISHOPS = 4;
+	static final int ROOKS = 5;
+	static final int QUEENS = 6;
+	static final int KINGS = 7;
+	static final int FLAGS = 8;
+	static final int KEY0 = 9;
+	static final int KEY1 = 10;
+	static final int LONGS_PER_PLY = 11;
+
+	static final int MOVE = 0;
+	static final int FIFTY_MOVES_RULE = 1;
+	static final int INTS_PER_PLY = 2;
+
+	private long[][] longChunks = new long[1][];
+	private int[][] intChunks = new int[1][];
+	// SAN of the move at each ply, only allocated and filled when requested
+	private String[][] sanChunks;
+	private int highestPly = -1;
+
+	/**
+	 * Saves the board state and the move that is going to be applied to it
+	 */
+	void save(int ply, int move, Board board) {
+		int chunk = ply >>> CHUNK_SHIFT;
+		if (chunk >= longChunks.length || longChunks[chunk] == null) {
+			allocateChunk(chunk);
+		}
+		long[] l = longChunks[chunk];
+		int lo = (ply & CHUNK_MASK) * LONGS_PER_PLY;
+		l[lo + WHITES] = board.whites;
+		l[lo + BLACKS] = board.blacks;
+		l[lo + PAWNS] = board.pawns;
+		l[lo + KNIGHTS] = board.knights;
+		l[lo + BISHOPS] = board.bishops;
+		l[lo + ROOKS] = board.rooks;
+		l[lo + QUEENS] = board.queens;
+		l[lo + KINGS] = board.kings;
+		l[lo + FLAGS] = board.flags;
+		l[lo + KEY0] = board.key[0];
+		l[lo + KEY1] = board.key[1];
+
+		int[] i = intChunks[chunk];
+		int io = (ply & CHUNK_MASK) * INTS_PER_PLY;
+		i[io + MOVE] = move;
+		i[io + FIFTY_MOVES_RULE] = board.fiftyMovesRule;
+
+		if (sanChunks != null && chunk < sanChunks.length && sanChunks[chunk] != null) {
+			sanChunks[chunk][ply & CHUNK_MASK] = null;
+		}
+		if (ply > highestPly) {
+			highestPly = ply;
+		}
+	}
+
+	/**
+	 * Restores the board state saved at this ply
+	 */
+	void restore(int ply, Board board) {
+		long[] l = longChunks[ply >>> CHUNK_SHIFT];
+		int lo = (ply & CHUNK_MASK) * LONGS_PER_PLY;
+		board.whites = l[lo + WHITES];
+		board.blacks = l[lo + BLACKS];
+		board.pawns = l[lo + PAWNS];
+		board.knights = l[lo + KNIGHTS];
+		board.bishops = l[lo + BISHOPS];
+		board.rooks = l[lo + ROOKS];
+		board.queens = l[lo + QUEENS];
+		board.kings = l[lo + KINGS];
+		board.flags = l[lo + FLAGS];
+		board.key[0] = l[lo + KEY0];
+		board.key[1] = l[lo + KEY1];
+		board.fiftyMovesRule = intChunks[ply >>> CHUNK_SHIFT][(ply & CHUNK_MASK) * INTS_PER_PLY + FIFTY_MOVES_RULE];
+	}
+
+	private long getLong(int ply, int field) {
+		int chunk = ply >>> CHUNK_SHIFT;
+		if (chunk >= longChunks.length || longChunks[chunk] == null) {
+			return 0;
+		}
+		return longChunks[chunk][(ply & CHUNK_MASK) * LONGS_PER_PLY + field];
+	}
+
+	private int getInt(int ply, int field) {
+		int chunk = ply >>> CHUNK_SHIFT;
+		if (chunk >= intChunks.length || intChunks[chunk] == null) {
+			return 0;
+		}
+		return intChunks[chunk][(ply & CHUNK_MASK) * INTS_PER_PLY + field];
+	}
+
+	public int getMove(int ply) {
+		return getInt(ply, MOVE);
+	}
+
+	public long getFlags(int ply) {
+		return getLong(ply, FLAGS);
+	}
+
+	public long getKey0(int ply) {
+		return getLong(ply, KEY0);
+	}
+
+	public long getKey1(int ply) {
+		return getLong(ply, KEY1);
+	}
+
+	public int getFiftyMovesRule(int ply) {
+		return getInt(ply, FIFTY_MOVES_RULE);
+	}
+
+	/**
+	 * The SAN cached for the move at this ply, null if it was not computed
+	 */
+	String getSan(int ply) {
+		int chunk = ply >>> CHUNK_SHIFT;
+		if (sanChunks == null || chunk >= sanChunks.length || sanChunks[chunk] == null) {
+			return null;
+		}
+		return sanChunks[chunk][ply & CHUNK_MASK];
+	}
+
+	void setSan(int ply, String san) {
+		int chunk = ply >>> CHUNK_SHIFT;
+		if (sanChunks == null) {
+			sanChunks = new String[longChunks.length][];
+		} else if (chunk >= sanChunks.length) {
+			sanChunks = Arrays.copyOf(sanChunks, longChunks.length);
+		}
+		if (sanChunks[chunk] == null) {
+			sanChunks[chunk] = new String[CHUNK_SIZE];
+		}
+		sanChunks[chunk][ply & CHUNK_MASK] = san;
+	}
+
+	/**
+	 * Copies the plies from fromPly (inclusive) to toPly (exclusive), including the cached SAN
+	 */
+	void copyFrom(BoardHistory source, int fromPly, int toPly) {
+		int ply = fromPly;
+		while (ply < toPly) {
+			int chunk = ply >>> CHUNK_SHIFT;
+			int count = Math.min(CHUNK_SIZE - (ply & CHUNK_MASK), toPly - ply);
+			if (chunk < source.longChunks.length && source.longChunks[chunk] != null) {
+				if (chunk >= longChunks.length || longChunks[chunk] == null) {
+					allocateChunk(chunk);
+				}
+				System.arraycopy(source.longChunks[chunk], (ply & CHUNK_MASK) * LONGS_PER_PLY,
+						longChunks[chunk], (ply & CHUNK_MASK) * LONGS_PER_PLY, count * LONGS_PER_PLY);
+				System.arraycopy(source.intChunks[chunk], (ply & CHUNK_MASK) * INTS_PER_PLY,
+						intChunks[chunk], (ply & CHUNK_MASK) * INTS_PER_PLY, count * INTS_PER_PLY);
+				for (int i = 0; i < count; i++) {
+					String san = source.getSan(ply + i);
+					if (san != null) {
+						setSan(ply + i, san);
+					}
+				}
+				if (ply + count - 1 > highestPly) {
+					highestPly = ply + count - 1;
+				}
+			}
+			ply += count;
+		}
+	}
+
+	/**
+	 * Zeroes the used plies but keeps the allocated chunks, so a reused board does not allocate again
+	 */
+	void clear() {
+		int lastChunk = Math.min(highestPly >>> CHUNK_SHIFT, longChunks.length - 1);
+		for (int chunk = 0; highestPly >= 0 && chunk <= lastChunk; chunk++) {
+			if (longChunks[chunk] != null) {
+				Arrays.fill(longChunks[chunk], 0);
+				Arrays.fill(intChunks[chunk], 0);
+			}
+			if (sanChunks != null && chunk < sanChunks.length && sanChunks[chunk] != null) {
+				Arrays.fill(sanChunks[chunk], null);
+			}
+		}
+		highestPly = -1;
+	}
+
+	private void allocateChunk(int chunk) {
+		if (chunk >= longChunks.length) {
+			int newLength = Math.max(chunk + 1, longChunks.length << 1);
+			longChunks = Arrays.copyOf(longChunks, newLength);
+			intChunks = Arrays.copyOf(intChunks, newLength);
+		}
+		longChunks[chunk] = new long[CHUNK_SIZE * LONGS_PER_PLY];
+		intChunks[chunk] = new int[CHUNK_SIZE * INTS_PER_PLY];
+	}
+}
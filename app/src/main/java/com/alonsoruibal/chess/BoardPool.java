@@ -0,0 +1,72 @@
+package com.alonsoruibal.chess;
+
+/**
+ * Small pool of reusable boards confined to the current thread.
+ * Hot loops validating positions or moves can acquire a board, use it and release it,
+ * avoiding the creation of a new Board (with its move generator and arrays) for each validation.
+ * A released board must not be used anymore by the caller.
+ */
+public class BoardPool {
+	public static final int DEFAULT_CAPACITY = 4;
+
+	private static final ThreadLocal<BoardPool> threadPool = new ThreadLocal<BoardPool>() {
+		@Override
+		protected BoardPool initialValue() {
+			return new BoardPool(DEFAULT_CAPACITY);
+		}
+	};
+
+	private final Board[] boards;
+	private int size = 0;
+
+	public BoardPool(int capacity) {
+		boards = new Board[capacity];
+	}
+
+	/**
+	 * The pool of the current thread
+	 */
+	public static BoardPool get() {
+		return threadPool.get();
+	}
+
+	private Board take() {
+		if (size == 0) {
+			return new Board();
+		}
+		Board board = boards[--size];
+		boards[size] = null;
+		return board;
+	}
+
+	/**
+	 * Gets a board set to the fen, with an empty move history
+	 */
+	public Board acquire(String fen) {
+		Board board = take();
+		board.reset(fen);
+		return board;
+	}
+
+	/**
+	 * Gets a board restored to the position, with an empty move history
+	 */
+	public Board acquire(Position position) {
+		Board board = take();
+		board.restore(position);
+		return board;
+	}
+
+	/**
+	 * Returns the board to the pool, it is discarded if the pool is full
+	 */
+	public void release(Board board) {
+		if (board != null && size < boards.length) {
+			boards[size++] = board;
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+}
@@ -22,6 +22,7 @@ public class Config {
 	public static final int DEFAULT_RAND = 0;
 	public static final int DEFAULT_ELO = 2100;
 	public static final boolean DEFAULT_UCI_CHESS960 = false;
+	public static final int DEFAULT_THREADS = 1;
 
 	public int transpositionTableSize = DEFAULT_TRANSPOSITION_TABLE_SIZE;
 	public boolean ponder = DEFAULT_PONDER;
@@ -33,6 +34,8 @@ public class Config {
 
 	private int rand = DEFAULT_RAND;
 	private boolean uciChess960 = DEFAULT_UCI_CHESS960;
+	// Search threads, the main one and the lazy SMP helpers
+	private int threads = DEFAULT_THREADS;
 
 	public boolean getPonder() {
 		return ponder;
@@ -106,6 +109,14 @@ public class Config {
 		this.uciChess960 = uciChess960;
 	}
 
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = Math.max(threads, 1);
+	}
+
 	/**
 	 * 2100 is the max, 500 the min
 	 *
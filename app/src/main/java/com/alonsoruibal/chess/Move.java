@@ -27,6 +27,8 @@ public class Move {
 
 	public static final String PIECE_LETTERS_LOWERCASE = " pnbrqk";
 	public static final String PIECE_LETTERS_UPPERCASE = " PNBRQK";
+	// Longest SAN built by toSan, as Qa1xh8+
+	private static final int SAN_MAX_LENGTH = 8;
 
 	// Move Types
 	public static final int TYPE_KINGSIDE_CASTLING = 1;
@@ -167,6 +169,9 @@ public class Move {
 		} else if ("".equals(move) || NONE_STRING.equals(move)) {
 			return Move.NONE;
 		}
+		if (verifyValidMove) {
+			return SanMoveCache.getInstance().getMove(board, move);
+		}
 
 		int fromIndex;
 		int toIndex;
@@ -310,19 +315,137 @@ public class Move {
 			if ((to & (turn ? board.blacks : board.whites)) != 0) {
 				capture = true;
 			}
-			int moveInt = Move.genMove(fromIndex, toIndex, pieceMoved, capture, check, moveType);
-			if (verifyValidMove) {
-				moveInt = board.getLegalMove(moveInt);
-				if (moveInt != NONE) {
-					return moveInt;
+			return Move.genMove(fromIndex, toIndex, pieceMoved, capture, check, moveType);
+		}
+		return NONE;
+	}
+
+	/**
+	 * Parses a legal move in SAN, long algebraic or UCI notation from the chars between start and end,
+	 * without building any string. Check, capture and annotation marks are ignored, and a promotion
+	 * without piece defaults to queen. The move is resolved against the legal moves of the board.
+	 *
+	 * @return the legal move with the check flag set, or NONE if it is malformed or not legal
+	 */
+	public static int getFromString(Board board, CharSequence move, int start, int end) {
+		while (end > start && isIgnoredSanChar(move.charAt(end - 1))) {
+			end--;
+		}
+		while (start < end && move.charAt(start) == ' ') {
+			start++;
+		}
+		if (start == end) {
+			return NONE;
+		}
+
+		char first = move.charAt(start);
+		if (first == 'O' || first == 'o' || first == '0') {
+			return getCastlingFromString(board, move, start, end);
+		}
+
+		int pieceMoved = Piece.PAWN;
+		int index = PIECE_LETTERS_UPPERCASE.indexOf(first);
+		if (index > 0) {
+			pieceMoved = index;
+			start++;
+		}
+
+		int promotion = 0;
+		if (end - start >= 3) {
+			switch (move.charAt(end - 1)) {
+				case 'Q':
+				case 'q':
+					promotion = TYPE_PROMOTION_QUEEN;
+					break;
+				case 'N':
+				case 'n':
+					promotion = TYPE_PROMOTION_KNIGHT;
+					break;
+				case 'B':
+				case 'b':
+					promotion = TYPE_PROMOTION_BISHOP;
+					break;
+				case 'R':
+				case 'r':
+					promotion = TYPE_PROMOTION_ROOK;
+					break;
+			}
+			if (promotion != 0) {
+				end--;
+				if (move.charAt(end - 1) == '=') {
+					end--;
 				}
-			} else {
-				return moveInt;
+			}
+		}
+
+		// The destination square is always the last 2 characters
+		int toIndex = BitboardUtils.algebraic2Index(move, end - 2);
+		if (end - start < 2 || toIndex < 0) {
+			return NONE;
+		}
+		end -= 2;
+
+		// Disambiguation, capture and the separator of the long algebraic notation
+		char fromFile = 0;
+		char fromRank = 0;
+		for (int i = start; i < end; i++) {
+			char c = move.charAt(i);
+			if (c >= 'a' && c <= 'h' && fromFile == 0) {
+				fromFile = c;
+			} else if (c >= '1' && c <= '8' && fromRank == 0) {
+				fromRank = c;
+			} else if (c != 'x' && c != '-' && c != ' ') {
+				return NONE;
+			}
+		}
+		// UCI or long algebraic notation without piece letter, the origin square identifies the piece
+		if (pieceMoved == Piece.PAWN && first >= 'a' && first <= 'h' && fromFile != 0 && fromRank != 0) {
+			pieceMoved = 0;
+		}
+
+		board.generateLegalMoves();
+		for (int i = 0; i < board.legalMoveCount; i++) {
+			int legalMove = board.legalMoves[i];
+			int fromIndex = getFromIndex(legalMove);
+			int moveType = getMoveType(legalMove);
+			if (getToIndex(legalMove) == toIndex
+					&& (pieceMoved == 0 || getPieceMoved(legalMove) == pieceMoved)
+					&& (fromFile == 0 || fromFile == 'h' - (fromIndex & 7))
+					&& (fromRank == 0 || fromRank == '1' + (fromIndex >> 3))
+					&& (moveType < TYPE_PROMOTION_QUEEN ? promotion == 0 : moveType == (promotion != 0 ? promotion : TYPE_PROMOTION_QUEEN))) {
+				return legalMove;
+			}
+		}
+		return NONE;
+	}
+
+	private static int getCastlingFromString(Board board, CharSequence move, int start, int end) {
+		int letters = 0;
+		for (int i = start; i < end; i++) {
+			char c = move.charAt(i);
+			if (c == 'O' || c == 'o' || c == '0') {
+				letters++;
+			} else if (c != '-' && c != ' ') {
+				return NONE;
+			}
+		}
+		int castlingType = letters == 2 ? TYPE_KINGSIDE_CASTLING : letters == 3 ? TYPE_QUEENSIDE_CASTLING : 0;
+		if (castlingType == 0) {
+			return NONE;
+		}
+		board.generateLegalMoves();
+		for (int i = 0; i < board.legalMoveCount; i++) {
+			if (getMoveType(board.legalMoves[i]) == castlingType && getPieceMoved(board.legalMoves[i]) == Piece.KING) {
+				return board.legalMoves[i];
 			}
 		}
 		return NONE;
 	}
 
+	private static boolean isIgnoredSanChar(char c) {
+		return c == '+' || c == '#' || c == '!' || c == '?' || c == ' ';
+	}
+
 	/**
 	 * Gets an UCI-String representation of the move
 	 *
@@ -412,11 +535,12 @@ public class Move {
 			return Move.isCheck(move) ? "O-O-O+" : "O-O-O";
 		}
 
-		StringBuilder sb = new StringBuilder();
+		char[] buffer = new char[SAN_MAX_LENGTH];
+		int length = 0;
 		if (getPieceMoved(move) != Piece.PAWN) {
-			sb.append(PIECE_LETTERS_UPPERCASE.charAt(getPieceMoved(move)));
+			buffer[length++] = PIECE_LETTERS_UPPERCASE.charAt(getPieceMoved(move));
 		}
-		String fromSq = BitboardUtils.index2Algebraic(Move.getFromIndex(move));
+		int fromIndex = getFromIndex(move);
 
 		if (isCapture(move) && getPieceMoved(move) == Piece.PAWN) {
 			disambiguate = true;
@@ -424,25 +548,28 @@ public class Move {
 
 		if (disambiguate) {
 			if (fileEqual && rankEqual) {
-				sb.append(fromSq);
+				buffer[length++] = (char) ('h' - (fromIndex & 7));
+				buffer[length++] = (char) ('1' + (fromIndex >> 3));
 			} else if (fileEqual) {
-				sb.append(fromSq.charAt(1));
+				buffer[length++] = (char) ('1' + (fromIndex >> 3));
 			} else {
-				sb.append(fromSq.charAt(0));
+				buffer[length++] = (char) ('h' - (fromIndex & 7));
 			}
 		}
 
 		if (isCapture(move)) {
-			sb.append("x");
+			buffer[length++] = 'x';
 		}
-		sb.append(BitboardUtils.index2Algebraic(Move.getToIndex(move)));
+		int toIndex = getToIndex(move);
+		buffer[length++] = (char) ('h' - (toIndex & 7));
+		buffer[length++] = (char) ('1' + (toIndex >> 3));
 		if (isPromotion(move)) {
-			sb.append(PIECE_LETTERS_UPPERCASE.charAt(getPiecePromoted(move)));
+			buffer[length++] = PIECE_LETTERS_UPPERCASE.charAt(getPiecePromoted(move));
 		}
 		if (isCheck(move)) {
-			sb.append("+");
+			buffer[length++] = '+';
 		}
-		return sb.toString();
+		return new String(buffer, 0, length);
 	}
 
 	public static void printMoves(int moves[], int from, int to) {
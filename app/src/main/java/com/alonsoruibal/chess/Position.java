@@ -0,0 +1,106 @@
+package com.alonsoruibal.chess;
+
+/**
+ * Immutable snapshot of a board position: bitboards, flags, castling rooks and zobrist key.
+ * It is captured and restored in constant time, so it can replace FEN strings when storing or moving positions around.
+ * It does not include the move history.
+ */
+public final class Position {
+	public final long whites;
+	public final long blacks;
+	public final long pawns;
+	public final long rooks;
+	public final long queens;
+	public final long bishops;
+	public final long knights;
+	public final long kings;
+	public final long flags;
+
+	// Origin squares for the castling rook {White Kingside, White Queenside, Black Kingside, Black Queenside}
+	public final long whiteKingsideRook;
+	public final long whiteQueensideRook;
+	public final long blackKingsideRook;
+	public final long blackQueensideRook;
+
+	public final long key0;
+	public final long key1;
+
+	public final int fiftyMovesRule;
+	public final int moveNumber;
+	public final boolean chess960;
+
+	Position(Board board) {
+		whites = board.whites;
+		blacks = board.blacks;
+		pawns = board.pawns;
+		rooks = board.rooks;
+		queens = board.queens;
+		bishops = board.bishops;
+		knights = board.knights;
+		kings = board.kings;
+		flags = board.flags;
+		whiteKingsideRook = board.castlingRooks[0];
+		whiteQueensideRook = board.castlingRooks[1];
+		blackKingsideRook = board.castlingRooks[2];
+		blackQueensideRook = board.castlingRooks[3];
+		key0 = board.key[0];
+		key1 = board.key[1];
+		fiftyMovesRule = board.fiftyMovesRule;
+		moveNumber = board.moveNumber;
+		chess960 = board.chess960;
+	}
+
+	/**
+	 * Same value as Board.getKey() for the captured board
+	 */
+	public long getKey() {
+		return key0 ^ key1;
+	}
+
+	/**
+	 * @return true if white moves
+	 */
+	public boolean getTurn() {
+		return (flags & Board.FLAG_TURN) == 0;
+	}
+
+	/**
+	 * Converts the position to its fen notation, it needs a temporary board so avoid it in loops
+	 */
+	public String getFen() {
+		Board board = new Board();
+		board.restore(this);
+		return board.getFen();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof Position)) {
+			return false;
+		}
+		Position p = (Position) o;
+		return key0 == p.key0 && key1 == p.key1
+				&& whites == p.whites && blacks == p.blacks
+				&& pawns == p.pawns && rooks == p.rooks && queens == p.queens
+				&& bishops == p.bishops && knights == p.knights && kings == p.kings
+				&& flags == p.flags
+				&& whiteKingsideRook == p.whiteKingsideRook && whiteQueensideRook == p.whiteQueensideRook
+				&& blackKingsideRook == p.blackKingsideRook && blackQueensideRook == p.blackQueensideRook
+				&& fiftyMovesRule == p.fiftyMovesRule && moveNumber == p.moveNumber
+				&& chess960 == p.chess960;
+	}
+
+	@Override
+	public int hashCode() {
+		long k = key0 ^ key1;
+		return (int) (k ^ (k >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		return getFen();
+	}
+}
@@ -0,0 +1,100 @@
+package com.alonsoruibal.chess;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Validates a whole line of SAN moves, with variations, on a single reused board.
+ * The tokens are SAN moves and the VARIATION_START/VARIATION_END markers, as in PGN movetext:
+ * a variation is an alternative to the move just before it.
+ * No exceptions or fen strings are involved, so whole files can be validated in the background.
+ * An instance is not thread safe.
+ */
+public class SanLineValidator {
+	public static final String VARIATION_START = "(";
+	public static final String VARIATION_END = ")";
+
+	public static class Result {
+		/**
+		 * Ply of the first illegal move, counted from the start position (0 is its first move), also inside variations.
+		 * For a misplaced variation marker it is the ply of the position where it was found. -1 if the line is legal.
+		 */
+		public final int illegalPly;
+		/**
+		 * Index of the first illegal or malformed token, the number of tokens for unclosed variations, -1 if the line is legal
+		 */
+		public final int illegalTokenIndex;
+		/**
+		 * Position at the end of the main line, or just before the illegal token
+		 */
+		public final Position position;
+
+		Result(int illegalPly, int illegalTokenIndex, Position position) {
+			this.illegalPly = illegalPly;
+			this.illegalTokenIndex = illegalTokenIndex;
+			this.position = position;
+		}
+
+		public boolean isLegal() {
+			return illegalPly == -1;
+		}
+	}
+
+	private final Board board = new Board();
+	// For each open variation: the ply where it starts and the main line move it replaces
+	private int[] variationPlies = new int[8];
+	private int[] variationMoves = new int[8];
+
+	public Result validate(String fen, List<String> tokens) {
+		board.reset(fen);
+		return validate(tokens);
+	}
+
+	public Result validate(Position start, List<String> tokens) {
+		board.restore(start);
+		return validate(tokens);
+	}
+
+	private Result validate(List<String> tokens) {
+		int depth = 0;
+		int tokenCount = tokens.size();
+		for (int i = 0; i < tokenCount; i++) {
+			String token = tokens.get(i);
+			if (VARIATION_START.equals(token)) {
+				int lineStart = depth > 0 ? variationPlies[depth - 1] : board.initialMoveNumber;
+				if (board.moveNumber <= lineStart) {
+					return illegal(i);
+				}
+				if (depth == variationPlies.length) {
+					variationPlies = Arrays.copyOf(variationPlies, depth << 1);
+					variationMoves = Arrays.copyOf(variationMoves, depth << 1);
+				}
+				variationMoves[depth] = board.getLastMove();
+				board.undoMove();
+				variationPlies[depth++] = board.moveNumber;
+
+			} else if (VARIATION_END.equals(token)) {
+				if (depth == 0) {
+					return illegal(i);
+				}
+				depth--;
+				board.undoMove(variationPlies[depth]);
+				board.doMove(variationMoves[depth], false, false);
+
+			} else {
+				int move = SanMoveCache.getInstance().getMove(board, token);
+				if (move == Move.NONE || !board.doMove(move, true, false)) {
+					return illegal(i);
+				}
+			}
+		}
+		if (depth > 0) {
+			return illegal(tokenCount);
+		}
+		return new Result(-1, -1, board.snapshot());
+	}
+
+	private Result illegal(int tokenIndex) {
+		return new Result(board.moveNumber - board.initialMoveNumber, tokenIndex, board.snapshot());
+	}
+}
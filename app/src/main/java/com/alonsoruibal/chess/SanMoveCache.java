@@ -0,0 +1,119 @@
+package com.alonsoruibal.chess;
+
+/**
+ * Bounded cache from (position key, move string) to the resolved legal move, shared by all the boards.
+ * PGN files are replayed many times (loading, solution checks, history building), so most lookups
+ * are the same strings on the same positions and can skip the legal move generation.
+ * It is organized in buckets of WAYS entries, a new entry replaces the least recently used one of its bucket.
+ * The entries are verified with both halves of the zobrist key, as the legal moves cache of the board,
+ * and the move strings are compared with equals, so the cache never returns a move for another string.
+ */
+public class SanMoveCache {
+	public static final int DEFAULT_SIZE = 1 << 14;
+	static final int WAYS = 8;
+	// Added to the key of chess960 boards, where castlings are encoded differently
+	private static final long CHESS960_KEY = 0x9e3779b97f4a7c15L;
+
+	private static SanMoveCache instance;
+
+	private final long[] keys0;
+	private final long[] keys1;
+	private final String[] moveStrings;
+	private final int[] moves;
+	private final long[] lastUse;
+	private final int bucketMask;
+	private long clock;
+
+	private long hits;
+	private long misses;
+
+	public static synchronized SanMoveCache getInstance() {
+		if (instance == null) {
+			instance = new SanMoveCache(DEFAULT_SIZE);
+		}
+		return instance;
+	}
+
+	/**
+	 * @param size entries, rounded down to a power of two, at least WAYS
+	 */
+	public SanMoveCache(int size) {
+		size = Integer.highestOneBit(Math.max(size, WAYS));
+		keys0 = new long[size];
+		keys1 = new long[size];
+		moveStrings = new String[size];
+		moves = new int[size];
+		lastUse = new long[size];
+		bucketMask = size / WAYS - 1;
+	}
+
+	/**
+	 * Resolves a move string as Move.getFromString with move verification, using the cached move if present
+	 *
+	 * @return the legal move with the check flag set, or Move.NONE
+	 */
+	public int getMove(Board board, String moveString) {
+		long key0 = board.chess960 ? board.key[0] ^ CHESS960_KEY : board.key[0];
+		long key1 = board.key[1];
+		long key = key0 ^ key1;
+		int bucket = ((int) (key ^ (key >>> 32) ^ moveString.hashCode() * 0x9e3779b9) & bucketMask) * WAYS;
+		synchronized (this) {
+			for (int i = bucket; i < bucket + WAYS; i++) {
+				String cachedString = moveStrings[i];
+				if (keys0[i] == key0 && keys1[i] == key1 && cachedString != null
+						&& (cachedString == moveString || cachedString.equals(moveString))) {
+					hits++;
+					lastUse[i] = ++clock;
+					return moves[i];
+				}
+			}
+			misses++;
+		}
+		int move = Move.getFromString(board, moveString, 0, moveString.length());
+		if (move != Move.NONE) {
+			synchronized (this) {
+				int victim = bucket;
+				for (int i = bucket + 1; i < bucket + WAYS; i++) {
+					if (lastUse[i] < lastUse[victim]) {
+						victim = i;
+					}
+				}
+				keys0[victim] = key0;
+				keys1[victim] = key1;
+				moveStrings[victim] = moveString;
+				moves[victim] = move;
+				lastUse[victim] = ++clock;
+			}
+		}
+		return move;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Hits over lookups, 0 before the first lookup
+	 */
+	public synchronized double getHitRatio() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	public synchronized void clear() {
+		for (int i = 0; i < keys0.length; i++) {
+			keys0[i] = 0;
+			keys1[i] = 0;
+			moveStrings[i] = null;
+			moves[i] = Move.NONE;
+			lastUse[i] = 0;
+		}
+		clock = 0;
+		hits = 0;
+		misses = 0;
+	}
+}
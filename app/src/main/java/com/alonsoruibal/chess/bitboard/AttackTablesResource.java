@@ -0,0 +1,118 @@
+package com.alonsoruibal.chess.bitboard;
+
+import com.alonsoruibal.chess.Color;
+import com.alonsoruibal.chess.log.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Attack tables of BitboardAttacksMagic packed in a binary resource, generated at build time by the
+ * generateAttackTables gradle task, so the first board does not wait for the table generation loops.
+ * Format (big endian): FORMAT_ID, a hash of the magic numbers, the number of magic attacks and then the rook,
+ * bishop, knight, king, white pawn, black pawn, rook mask and bishop mask tables followed by the magic attacks.
+ * A resource generated with other magic numbers is ignored and the tables are generated.
+ */
+public class AttackTablesResource {
+	private static final Logger logger = Logger.getLogger("AttackTablesResource");
+
+	public static final String RESOURCE_NAME = "attacks.bin";
+	private static final int FORMAT_ID = 0x41544b31; // ATK1
+	private static final int SQUARE_TABLES = 8;
+
+	static boolean load(BitboardAttacksMagic attacks) {
+		InputStream in = BitboardAttacksMagic.class.getResourceAsStream(RESOURCE_NAME);
+		if (in == null) {
+			return false;
+		}
+		try {
+			DataInputStream dataIn = new DataInputStream(in);
+			if (dataIn.readInt() != FORMAT_ID || dataIn.readInt() != getMagicsHash()) {
+				logger.debug("Ignoring attack tables resource generated with other magics");
+				return false;
+			}
+			attacks.allocateMagicTables();
+			if (dataIn.readInt() != attacks.magicAttacks.length) {
+				return false;
+			}
+			// One bulk read of the whole tables
+			byte[] bytes = new byte[(SQUARE_TABLES * 64 + attacks.magicAttacks.length) << 3];
+			dataIn.readFully(bytes);
+			LongBuffer buffer = ByteBuffer.wrap(bytes).asLongBuffer();
+
+			attacks.rook = get(buffer, new long[64]);
+			attacks.bishop = get(buffer, new long[64]);
+			attacks.knight = get(buffer, new long[64]);
+			attacks.king = get(buffer, new long[64]);
+			attacks.pawn = new long[2][];
+			attacks.pawn[Color.W] = get(buffer, new long[64]);
+			attacks.pawn[Color.B] = get(buffer, new long[64]);
+			get(buffer, attacks.rookMask);
+			get(buffer, attacks.bishopMask);
+			get(buffer, attacks.magicAttacks);
+			return true;
+		} catch (IOException e) {
+			logger.error("Error reading attack tables resource: " + e.getMessage());
+			return false;
+		} finally {
+			try {
+				in.close();
+			} catch (IOException ignored) {
+			}
+		}
+	}
+
+	private static long[] get(LongBuffer buffer, long[] table) {
+		buffer.get(table);
+		return table;
+	}
+
+	static void write(BitboardAttacksMagic attacks, DataOutputStream out) throws IOException {
+		out.writeInt(FORMAT_ID);
+		out.writeInt(getMagicsHash());
+		out.writeInt(attacks.magicAttacks.length);
+		long[][] tables = {attacks.rook, attacks.bishop, attacks.knight, attacks.king, attacks.pawn[Color.W], attacks.pawn[Color.B],
+				attacks.rookMask, attacks.bishopMask, attacks.magicAttacks};
+		for (long[] table : tables) {
+			for (long value : table) {
+				out.writeLong(value);
+			}
+		}
+	}
+
+	private static int getMagicsHash() {
+		long hash = 0;
+		for (int i = 0; i < 64; i++) {
+			hash = hash * 31 + BitboardAttacksMagic.rookMagicNumber[i];
+			hash = hash * 31 + BitboardAttacksMagic.bishopMagicNumber[i];
+			hash = hash * 31 + (BitboardAttacksMagic.rookShiftBits[i] << 8 | BitboardAttacksMagic.bishopShiftBits[i]);
+		}
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	/**
+	 * Generates the resource, used by the build
+	 *
+	 * @param args the resources output directory
+	 */
+	public static void main(String[] args) throws IOException {
+		File file = new File(args[0], "com/alonsoruibal/chess/bitboard/" + RESOURCE_NAME);
+		if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+			throw new IOException("Cannot create " + file.getParent());
+		}
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			write(new BitboardAttacksMagic(false), out);
+		} finally {
+			out.close();
+		}
+		logger.info("Written " + file + " (" + file.length() + " bytes)");
+	}
+}
@@ -3,10 +3,13 @@ package com.alonsoruibal.chess.bitboard;
 import com.alonsoruibal.chess.Board;
 import com.alonsoruibal.chess.Square;
 
+import java.util.Arrays;
+
 /**
  * Holds all the possible attacks for a board.
  * It is used by the evaluators and the move iterator, and also to speed the SEE calculations detecting not attacked squares.
  * Calculates the checking pieces and the interpose squares to avoid checks.
+ * The search keeps one instance in each node, so the attacks of a ply survive while its moves are searched.
  */
 public class AttacksInfo {
 	public static final int W = 0;
@@ -39,6 +42,13 @@ public class AttacksInfo {
 	public long interposeCheckSquares;
 	public long pinnedPieces;
 
+	// Pieces of both sides attacking each square, calculated on demand for the SEE
+	private long attackersTo[] = new long[64];
+	private long attackersToCalculated;
+	// Calls to getAttackersTo and the ones answered with the kept attackers, collected by the search statistics
+	public long attackersToProbes;
+	public long attackersToHits;
+
 	public AttacksInfo() {
 		this.bbAttacks = BitboardAttacks.getInstance();
 	}
@@ -95,6 +105,7 @@ public class AttacksInfo {
 			return;
 		}
 		boardKey = board.getKey();
+		attackersToCalculated = 0;
 		long all = board.getAll();
 		long mines = board.getMines();
 		long myKing = board.kings & mines;
@@ -133,75 +144,92 @@ public class AttacksInfo {
 		rookAttacksKing[B] = bbAttacks.getRookAttacks(kingIndex[B], all);
 		checkPinnerRook(kingIndex[B], rookAttacksKing[B], all, board.blacks, (board.rooks | board.queens) & board.whites);
 
+		Arrays.fill(attacksFromSquare, 0);
 		long pieceAttacks;
-		int index;
-		long square = 1;
-		for (index = 0; index < 64; index++) {
-			if ((square & all) != 0) {
-				int color = (board.whites & square) != 0 ? W : B;
-				long pinnedSquares = (square & pinnedPieces) != 0 ? pinnedMobility[index] : Square.ALL;
-
-				pieceAttacks = 0;
-				if ((square & board.pawns) != 0) {
-					pieceAttacks = bbAttacks.pawn[color][index];
-					if ((square & mines) == 0 && (pieceAttacks & myKing) != 0) {
-						piecesGivingCheck |= square;
-					}
-					pawnAttacks[color] |= pieceAttacks & pinnedSquares;
-
-				} else if ((square & board.knights) != 0) {
-					pieceAttacks = bbAttacks.knight[index];
-					if ((square & mines) == 0 && (pieceAttacks & myKing) != 0) {
-						piecesGivingCheck |= square;
-					}
-					knightAttacks[color] |= pieceAttacks & pinnedSquares;
-
-				} else if ((square & board.bishops) != 0) {
-					pieceAttacks = bbAttacks.getBishopAttacks(index, all);
-					if ((square & mines) == 0 && (pieceAttacks & myKing) != 0) {
-						piecesGivingCheck |= square;
-						interposeCheckSquares |= pieceAttacks & bishopAttacksKing[us]; // And with only the diagonal attacks to the king
-					}
-					bishopAttacks[color] |= pieceAttacks & pinnedSquares;
-					mayPin[color] |= all & pieceAttacks;
-
-				} else if ((square & board.rooks) != 0) {
-					pieceAttacks = bbAttacks.getRookAttacks(index, all);
-					if ((square & mines) == 0 && (pieceAttacks & myKing) != 0) {
-						piecesGivingCheck |= square;
-						interposeCheckSquares |= pieceAttacks & rookAttacksKing[us]; // And with only the rook attacks to the king
-					}
-					rookAttacks[color] |= pieceAttacks & pinnedSquares;
-					mayPin[color] |= all & pieceAttacks;
-
-				} else if ((square & board.queens) != 0) {
-					long bishopSliderAttacks = bbAttacks.getBishopAttacks(index, all);
-					if ((square & mines) == 0 && (bishopSliderAttacks & myKing) != 0) {
-						piecesGivingCheck |= square;
-						interposeCheckSquares |= bishopSliderAttacks & bishopAttacksKing[us]; // And with only the diagonal attacks to the king
-					}
-					long rookSliderAttacks = bbAttacks.getRookAttacks(index, all);
-					if ((square & mines) == 0 && (rookSliderAttacks & myKing) != 0) {
-						piecesGivingCheck |= square;
-						interposeCheckSquares |= rookSliderAttacks & rookAttacksKing[us]; // And with only the rook attacks to the king
-					}
-					pieceAttacks = rookSliderAttacks | bishopSliderAttacks;
-					queenAttacks[color] |= pieceAttacks & pinnedSquares;
-					mayPin[color] |= all & pieceAttacks;
-
-				} else if ((square & board.kings) != 0) {
-					pieceAttacks = bbAttacks.king[index];
-					kingAttacks[color] |= pieceAttacks;
+		long pieces = all;
+		while (pieces != 0) {
+			long square = BitboardUtils.lsb(pieces);
+			pieces ^= square;
+			int index = BitboardUtils.square2Index(square);
+			int color = (board.whites & square) != 0 ? W : B;
+			long pinnedSquares = (square & pinnedPieces) != 0 ? pinnedMobility[index] : Square.ALL;
+
+			pieceAttacks = 0;
+			if ((square & board.pawns) != 0) {
+				pieceAttacks = bbAttacks.pawn[color][index];
+				if ((square & mines) == 0 && (pieceAttacks & myKing) != 0) {
+					piecesGivingCheck |= square;
+				}
+				pawnAttacks[color] |= pieceAttacks & pinnedSquares;
+
+			} else if ((square & board.knights) != 0) {
+				pieceAttacks = bbAttacks.knight[index];
+				if ((square & mines) == 0 && (pieceAttacks & myKing) != 0) {
+					piecesGivingCheck |= square;
+				}
+				knightAttacks[color] |= pieceAttacks & pinnedSquares;
+
+			} else if ((square & board.bishops) != 0) {
+				pieceAttacks = bbAttacks.getBishopAttacks(index, all);
+				if ((square & mines) == 0 && (pieceAttacks & myKing) != 0) {
+					piecesGivingCheck |= square;
+					interposeCheckSquares |= pieceAttacks & bishopAttacksKing[us]; // And with only the diagonal attacks to the king
+				}
+				bishopAttacks[color] |= pieceAttacks & pinnedSquares;
+				mayPin[color] |= all & pieceAttacks;
+
+			} else if ((square & board.rooks) != 0) {
+				pieceAttacks = bbAttacks.getRookAttacks(index, all);
+				if ((square & mines) == 0 && (pieceAttacks & myKing) != 0) {
+					piecesGivingCheck |= square;
+					interposeCheckSquares |= pieceAttacks & rookAttacksKing[us]; // And with only the rook attacks to the king
+				}
+				rookAttacks[color] |= pieceAttacks & pinnedSquares;
+				mayPin[color] |= all & pieceAttacks;
+
+			} else if ((square & board.queens) != 0) {
+				long bishopSliderAttacks = bbAttacks.getBishopAttacks(index, all);
+				if ((square & mines) == 0 && (bishopSliderAttacks & myKing) != 0) {
+					piecesGivingCheck |= square;
+					interposeCheckSquares |= bishopSliderAttacks & bishopAttacksKing[us]; // And with only the diagonal attacks to the king
 				}
+				long rookSliderAttacks = bbAttacks.getRookAttacks(index, all);
+				if ((square & mines) == 0 && (rookSliderAttacks & myKing) != 0) {
+					piecesGivingCheck |= square;
+					interposeCheckSquares |= rookSliderAttacks & rookAttacksKing[us]; // And with only the rook attacks to the king
+				}
+				pieceAttacks = rookSliderAttacks | bishopSliderAttacks;
+				queenAttacks[color] |= pieceAttacks & pinnedSquares;
+				mayPin[color] |= all & pieceAttacks;
 
-				attackedSquaresAlsoPinned[color] |= pieceAttacks;
-				attacksFromSquare[index] = pieceAttacks & pinnedSquares;
-			} else {
-				attacksFromSquare[index] = 0;
+			} else if ((square & board.kings) != 0) {
+				pieceAttacks = bbAttacks.king[index];
+				kingAttacks[color] |= pieceAttacks;
 			}
-			square <<= 1;
+
+			attackedSquaresAlsoPinned[color] |= pieceAttacks;
+			attacksFromSquare[index] = pieceAttacks & pinnedSquares;
 		}
 		attackedSquares[W] = pawnAttacks[W] | knightAttacks[W] | bishopAttacks[W] | rookAttacks[W] | queenAttacks[W] | kingAttacks[W];
 		attackedSquares[B] = pawnAttacks[B] | knightAttacks[B] | bishopAttacks[B] | rookAttacks[B] | queenAttacks[B] | kingAttacks[B];
 	}
+
+	/**
+	 * Pieces of both sides attacking the square, the same as BitboardAttacks.getIndexAttacks, but kept for the
+	 * next calls with the same square while the attacks are built for this board
+	 */
+	public long getAttackersTo(Board board, int index) {
+		attackersToProbes++;
+		if (boardKey != board.getKey()) {
+			return bbAttacks.getIndexAttacks(board, index);
+		}
+		long square = 1L << index;
+		if ((attackersToCalculated & square) == 0) {
+			attackersTo[index] = bbAttacks.getIndexAttacks(board, index);
+			attackersToCalculated |= square;
+		} else {
+			attackersToHits++;
+		}
+		return attackersTo[index];
+	}
 }
\ No newline at end of file
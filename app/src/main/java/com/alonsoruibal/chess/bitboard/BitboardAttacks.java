@@ -60,6 +60,19 @@ public class BitboardAttacks {
 	}
 
 	BitboardAttacks() {
+		this(true);
+	}
+
+	/**
+	 * @param generateTables false if the subclass fills the tables by other means
+	 */
+	BitboardAttacks(boolean generateTables) {
+		if (generateTables) {
+			generateTables();
+		}
+	}
+
+	void generateTables() {
 		logger.debug("Generating attack tables...");
 		long time1 = System.currentTimeMillis();
 		rook = new long[64];
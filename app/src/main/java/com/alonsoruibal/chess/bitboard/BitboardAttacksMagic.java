@@ -49,18 +49,69 @@ public class BitboardAttacksMagic extends BitboardAttacks {
 
 	// Mask = Attacks without border for magic bitboards
 	public long[] rookMask;
-	public long[][] rookMagic;
 	public long[] bishopMask;
-	public long[][] bishopMagic;
+	// "Fancy" magics: the attacks of all the squares are packed in magicAttacks, starting at the square offset
+	public int[] rookOffset;
+	public int[] bishopOffset;
+	public long[] magicAttacks;
+
+	// Startup instrumentation
+	private final long initTime;
+	private final boolean loadedFromResource;
 
 	public BitboardAttacksMagic() {
-		super();
-		logger.debug("Generating magic tables...");
-		long time1 = System.currentTimeMillis();
+		this(true);
+	}
+
+	/**
+	 * @param loadResource if false, the tables are always generated, as needed by AttackTablesResource
+	 */
+	BitboardAttacksMagic(boolean loadResource) {
+		super(false);
+		long time1 = System.nanoTime();
+		loadedFromResource = loadResource && AttackTablesResource.load(this);
+		if (!loadedFromResource) {
+			generateTables();
+			generateMagicTables();
+		}
+		initTime = System.nanoTime() - time1;
+		logger.debug((loadedFromResource ? "Loaded" : "Generated") + " attack tables in " + (initTime / 1000) + "us");
+	}
+
+	/**
+	 * Nanoseconds spent building or loading the tables
+	 */
+	public long getInitTime() {
+		return initTime;
+	}
+
+	public boolean isLoadedFromResource() {
+		return loadedFromResource;
+	}
+
+	/**
+	 * Computes the offsets of each square in magicAttacks and allocates the tables
+	 */
+	void allocateMagicTables() {
 		rookMask = new long[64];
-		rookMagic = new long[64][];
 		bishopMask = new long[64];
-		bishopMagic = new long[64][];
+		// The bishop attacks go after the rook ones
+		rookOffset = getOffsets(rookShiftBits, 0);
+		bishopOffset = getOffsets(bishopShiftBits, rookOffset[63] + (1 << rookShiftBits[63]));
+		magicAttacks = new long[bishopOffset[63] + (1 << bishopShiftBits[63])];
+	}
+
+	private static int[] getOffsets(byte[] shiftBits, int base) {
+		int[] offsets = new int[64];
+		offsets[0] = base;
+		for (int i = 1; i < 64; i++) {
+			offsets[i] = offsets[i - 1] + (1 << shiftBits[i - 1]);
+		}
+		return offsets;
+	}
+
+	private void generateMagicTables() {
+		allocateMagicTables();
 
 		long square = 1;
 		byte i = 0;
@@ -78,25 +129,21 @@ public class BitboardAttacksMagic extends BitboardAttacks {
 
 			// And now generate magics
 			int rookPositions = (1 << rookShiftBits[i]);
-			rookMagic[i] = new long[rookPositions];
 			for (int j = 0; j < rookPositions; j++) {
 				long pieces = generatePieces(j, rookShiftBits[i], rookMask[i]);
 				int magicIndex = magicTransform(pieces, rookMagicNumber[i], rookShiftBits[i]);
-				rookMagic[i][magicIndex] = getRookShiftAttacks(square, pieces);
+				magicAttacks[rookOffset[i] + magicIndex] = getRookShiftAttacks(square, pieces);
 			}
 
 			int bishopPositions = (1 << bishopShiftBits[i]);
-			bishopMagic[i] = new long[bishopPositions];
 			for (int j = 0; j < bishopPositions; j++) {
 				long pieces = generatePieces(j, bishopShiftBits[i], bishopMask[i]);
 				int magicIndex = magicTransform(pieces, bishopMagicNumber[i], bishopShiftBits[i]);
-				bishopMagic[i][magicIndex] = getBishopShiftAttacks(square, pieces);
+				magicAttacks[bishopOffset[i] + magicIndex] = getBishopShiftAttacks(square, pieces);
 			}
 			square <<= 1;
 			i++;
 		}
-		long time2 = System.currentTimeMillis();
-		logger.debug("Generated magic tables in " + (time2 - time1) + "ms");
 	}
 
 	/**
@@ -141,12 +188,12 @@ public class BitboardAttacksMagic extends BitboardAttacks {
 	@Override
 	public long getRookAttacks(int index, long all) {
 		int i = magicTransform(all & rookMask[index], rookMagicNumber[index], rookShiftBits[index]);
-		return rookMagic[index][i];
+		return magicAttacks[rookOffset[index] + i];
 	}
 
 	@Override
 	public long getBishopAttacks(int index, long all) {
 		int i = magicTransform(all & bishopMask[index], bishopMagicNumber[index], bishopShiftBits[index]);
-		return bishopMagic[index][i];
+		return magicAttacks[bishopOffset[index] + i];
 	}
 }
@@ -251,6 +251,21 @@ public class BitboardUtils {
 		return -1;
 	}
 
+	/**
+	 * Parses the two chars of a square name at the offset without building any string, -1 if they are not a square
+	 */
+	public static int algebraic2Index(CharSequence chars, int offset) {
+		if (offset < 0 || offset + 1 >= chars.length()) {
+			return -1;
+		}
+		char file = chars.charAt(offset);
+		char rank = chars.charAt(offset + 1);
+		if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+			return -1;
+		}
+		return ((rank - '1') << 3) + ('h' - file);
+	}
+
 	public static long algebraic2Square(String name) {
 		long aux = Square.H1;
 		for (int i = 0; i < 64; i++) {
@@ -2,23 +2,264 @@ package com.alonsoruibal.chess.movegen;
 
 import com.alonsoruibal.chess.Board;
 import com.alonsoruibal.chess.Move;
+import com.alonsoruibal.chess.Piece;
+import com.alonsoruibal.chess.bitboard.AttacksInfo;
+import com.alonsoruibal.chess.bitboard.BitboardAttacks;
+import com.alonsoruibal.chess.bitboard.BitboardUtils;
 
-public class LegalMoveGenerator extends MagicMoveGenerator {
+/**
+ * Generates only legal moves, without playing them on the board.
+ * The checking pieces, the interpose squares and the pinned pieces with their mobility come from AttacksInfo:
+ * in double check only the king moves, in single check the other pieces must capture the checker or interpose,
+ * and pinned pieces only move along the pin ray.
+ * En passant captures and chess960 castlings are verified on the resulting occupancy, because they can uncover
+ * the king in ways that the pins do not describe.
+ * The moves are returned with the check flag set and in the same order as MagicMoveGenerator.
+ */
+public class LegalMoveGenerator implements MoveGenerator {
+
+	private final BitboardAttacks bbAttacks = BitboardAttacks.getInstance();
+	private final AttacksInfo ai = new AttacksInfo();
+
+	private int[] moves;
+	private int moveIndex;
+	private Board board;
+	private long all;
+	private long mines;
+	private long others;
+	private int us;
+	private int them;
+	private int otherKingIndex;
+	private long myBishopsOrQueens;
+	private long myRooksOrQueens;
 
-	/**
-	 * Get only LEGAL moves testing with doMove
-	 * The moves are returned with the check flag set
-	 */
 	@Override
 	public int generateMoves(Board board, int moves[], int index) {
-		int lastIndex = super.generateMoves(board, moves, index);
-		int j = index;
-		for (int i = 0; i < lastIndex; i++) {
-			if (board.doMove(moves[i], true, false)) {
-				moves[j++] = board.getCheck() ? moves[i] | Move.CHECK_MASK : moves[i];
-				board.undoMove();
+		this.moves = moves;
+		this.board = board;
+		moveIndex = index;
+		all = board.getAll();
+		mines = board.getMines();
+		others = board.getOthers();
+		us = board.getTurn() ? AttacksInfo.W : AttacksInfo.B;
+		them = 1 - us;
+
+		ai.build(board);
+		otherKingIndex = ai.kingIndex[them];
+		myBishopsOrQueens = (board.bishops | board.queens) & mines;
+		myRooksOrQueens = (board.rooks | board.queens) & mines;
+
+		long checkers = ai.piecesGivingCheck;
+		if ((checkers & (checkers - 1)) != 0) {
+			// Double check: only the king can move
+			generateKingMoves(ai.kingIndex[us], checkers);
+			return moveIndex;
+		}
+		// Destination squares for the pieces other than the king
+		long targets = checkers == 0 ? ~mines : checkers | ai.interposeCheckSquares;
+
+		long pieces = mines;
+		while (pieces != 0) {
+			long from = BitboardUtils.lsb(pieces);
+			pieces ^= from;
+			int fromIndex = BitboardUtils.square2Index(from);
+
+			if ((from & board.pawns) != 0) {
+				generatePawnMoves(fromIndex, from, targets);
+			} else if ((from & board.kings) != 0) {
+				generateKingMoves(fromIndex, checkers);
+			} else {
+				// attacksFromSquare is already restricted to the pin ray for pinned pieces
+				long attacks = ai.attacksFromSquare[fromIndex] & ~mines & targets;
+				int pieceMoved = (from & board.knights) != 0 ? Piece.KNIGHT :
+						(from & board.bishops) != 0 ? Piece.BISHOP :
+								(from & board.rooks) != 0 ? Piece.ROOK : Piece.QUEEN;
+				while (attacks != 0) {
+					long to = BitboardUtils.lsb(attacks);
+					attacks ^= to;
+					addMove(pieceMoved, fromIndex, from, to, (to & others) != 0, 0);
+				}
+			}
+		}
+
+		if (checkers == 0) {
+			generateCastling(true);
+			generateCastling(false);
+		}
+		return moveIndex;
+	}
+
+	private void generatePawnMoves(int fromIndex, long from, long targets) {
+		long pinMask = (from & ai.pinnedPieces) != 0 ? ai.pinnedMobility[fromIndex] : ~0L;
+		long moveTargets = targets & pinMask;
+
+		long push = us == AttacksInfo.W ? from << 8 : from >>> 8;
+		if ((push & all) == 0) {
+			if ((push & moveTargets) != 0) {
+				addPawnMoves(fromIndex, from, push, false, 0);
+			}
+			long doublePush = us == AttacksInfo.W ? from << 16 : from >>> 16;
+			if ((from & (us == AttacksInfo.W ? BitboardUtils.b2_d : BitboardUtils.b2_u)) != 0
+					&& (doublePush & all) == 0 && (doublePush & moveTargets) != 0) {
+				addPawnMoves(fromIndex, from, doublePush, false, 0);
+			}
+		}
+
+		long passant = board.getPassantSquare();
+		long captures = bbAttacks.pawn[us][fromIndex] & (others | passant);
+		while (captures != 0) {
+			long to = BitboardUtils.lsb(captures);
+			captures ^= to;
+			if ((to & others) != 0) {
+				if ((to & moveTargets) != 0) {
+					addPawnMoves(fromIndex, from, to, true, 0);
+				}
+			} else if (isLegalPassant(from, to)) {
+				addMove(Piece.PAWN, fromIndex, from, to, true, Move.TYPE_PASSANT);
+			}
+		}
+	}
+
+	/**
+	 * The en passant capture removes two pieces from the same rank, it may uncover the king even if no piece is pinned,
+	 * so it is verified with the occupancy after the capture
+	 */
+	private boolean isLegalPassant(long from, long to) {
+		long captured = us == AttacksInfo.W ? to >>> 8 : to << 8;
+		long occupancy = (all & ~from & ~captured) | to;
+		int kingIndex = ai.kingIndex[us];
+		long otherBishopsOrQueens = (board.bishops | board.queens) & others;
+		long otherRooksOrQueens = (board.rooks | board.queens) & others;
+		return (bbAttacks.pawn[us][kingIndex] & board.pawns & others & ~captured) == 0
+				&& (bbAttacks.knight[kingIndex] & board.knights & others) == 0
+				&& (bbAttacks.getBishopAttacks(kingIndex, occupancy) & otherBishopsOrQueens) == 0
+				&& (bbAttacks.getRookAttacks(kingIndex, occupancy) & otherRooksOrQueens) == 0;
+	}
+
+	private void generateKingMoves(int fromIndex, long checkers) {
+		long from = 1L << fromIndex;
+		long attacks = bbAttacks.king[fromIndex] & ~mines & ~ai.attackedSquaresAlsoPinned[them];
+		// A slider checking the king also attacks the squares behind it
+		boolean sliderCheck = (checkers & (board.bishops | board.rooks | board.queens)) != 0;
+		long occupancy = all & ~from;
+		while (attacks != 0) {
+			long to = BitboardUtils.lsb(attacks);
+			attacks ^= to;
+			int toIndex = BitboardUtils.square2Index(to);
+			if (sliderCheck && ((bbAttacks.getBishopAttacks(toIndex, occupancy) & (board.bishops | board.queens) & others) != 0
+					|| (bbAttacks.getRookAttacks(toIndex, occupancy) & (board.rooks | board.queens) & others) != 0)) {
+				continue;
 			}
+			addMove(Piece.KING, fromIndex, from, to, (to & others) != 0, 0);
+		}
+	}
+
+	/**
+	 * Same conditions as MagicMoveGenerator, plus the king safety on the final square with the final occupancy
+	 */
+	private void generateCastling(boolean kingside) {
+		boolean turn = us == AttacksInfo.W;
+		int castlingIndex = (turn ? 0 : 2) + (kingside ? 0 : 1);
+		if (!(turn ? (kingside ? board.getWhiteKingsideCastling() : board.getWhiteQueensideCastling())
+				: (kingside ? board.getBlackKingsideCastling() : board.getBlackQueensideCastling()))) {
+			return;
+		}
+		long rookOrigin = board.castlingRooks[castlingIndex];
+		long rookDestiny = Board.CASTLING_ROOK_DESTINY_SQUARE[castlingIndex];
+		long rookRoute = getRoute(rookOrigin, rookDestiny);
+		long kingOrigin = board.kings & mines;
+		long kingDestiny = Board.CASTLING_KING_DESTINY_SQUARE[castlingIndex];
+		long kingRoute = getRoute(kingOrigin, kingDestiny);
+		if ((all & (kingRoute | rookRoute) & ~rookOrigin & ~kingOrigin) != 0
+				|| bbAttacks.areSquaresAttacked(board, kingRoute, turn)) {
+			return;
+		}
+		long occupancy = (all & ~kingOrigin & ~rookOrigin) | kingDestiny | rookDestiny;
+		int kingDestinyIndex = BitboardUtils.square2Index(kingDestiny);
+		if ((bbAttacks.getBishopAttacks(kingDestinyIndex, occupancy) & (board.bishops | board.queens) & others) != 0
+				|| (bbAttacks.getRookAttacks(kingDestinyIndex, occupancy) & (board.rooks | board.queens) & others) != 0) {
+			return;
+		}
+		long rooksOrQueens = (myRooksOrQueens & ~rookOrigin) | rookDestiny;
+		boolean check = (bbAttacks.getRookAttacks(otherKingIndex, occupancy) & rooksOrQueens) != 0
+				|| (bbAttacks.getBishopAttacks(otherKingIndex, occupancy) & myBishopsOrQueens) != 0;
+		moves[moveIndex++] = Move.genMove(BitboardUtils.square2Index(kingOrigin),
+				BitboardUtils.square2Index(board.chess960 ? rookOrigin : kingDestiny), Piece.KING, false, check,
+				kingside ? Move.TYPE_KINGSIDE_CASTLING : Move.TYPE_QUEENSIDE_CASTLING);
+	}
+
+	/**
+	 * Squares crossed from origin to destiny, including destiny. In chess960 the king and the rook may move
+	 * in both directions, while getHorizontalLine expects the leftmost square first.
+	 */
+	private static long getRoute(long origin, long destiny) {
+		return (BitboardUtils.square2Index(origin) > BitboardUtils.square2Index(destiny) ? BitboardUtils.getHorizontalLine(origin, destiny)
+				: BitboardUtils.getHorizontalLine(destiny, origin)) & ~origin;
+	}
+
+	private void addPawnMoves(int fromIndex, long from, long to, boolean capture, int moveType) {
+		if ((to & (BitboardUtils.b_u | BitboardUtils.b_d)) != 0) {
+			addMove(Piece.PAWN, fromIndex, from, to, capture, Move.TYPE_PROMOTION_QUEEN);
+			addMove(Piece.PAWN, fromIndex, from, to, capture, Move.TYPE_PROMOTION_KNIGHT);
+			addMove(Piece.PAWN, fromIndex, from, to, capture, Move.TYPE_PROMOTION_ROOK);
+			addMove(Piece.PAWN, fromIndex, from, to, capture, Move.TYPE_PROMOTION_BISHOP);
+		} else {
+			addMove(Piece.PAWN, fromIndex, from, to, capture, moveType);
+		}
+	}
+
+	private void addMove(int pieceMoved, int fromIndex, long from, long to, boolean capture, int moveType) {
+		int toIndex = BitboardUtils.square2Index(to);
+		moves[moveIndex++] = Move.genMove(fromIndex, toIndex, pieceMoved, capture,
+				givesCheck(pieceMoved, from, to, toIndex, moveType), moveType);
+	}
+
+	/**
+	 * Checks the other king with the occupancy after the move: direct checks and checks discovered by moving
+	 * a piece out of a ray of the other king or by removing the pawn captured en passant
+	 */
+	private boolean givesCheck(int pieceMoved, long from, long to, int toIndex, int moveType) {
+		int pieceAfter = pieceMoved;
+		switch (moveType) {
+			case Move.TYPE_PROMOTION_QUEEN:
+				pieceAfter = Piece.QUEEN;
+				break;
+			case Move.TYPE_PROMOTION_KNIGHT:
+				pieceAfter = Piece.KNIGHT;
+				break;
+			case Move.TYPE_PROMOTION_ROOK:
+				pieceAfter = Piece.ROOK;
+				break;
+			case Move.TYPE_PROMOTION_BISHOP:
+				pieceAfter = Piece.BISHOP;
+				break;
+		}
+		long otherKing = 1L << otherKingIndex;
+		if (pieceAfter == Piece.PAWN && (bbAttacks.pawn[us][toIndex] & otherKing) != 0) {
+			return true;
+		}
+		if (pieceAfter == Piece.KNIGHT && (bbAttacks.knight[toIndex] & otherKing) != 0) {
+			return true;
+		}
+		boolean slider = pieceAfter == Piece.BISHOP || pieceAfter == Piece.ROOK || pieceAfter == Piece.QUEEN;
+		if (!slider && moveType != Move.TYPE_PASSANT
+				&& (from & (ai.bishopAttacksKing[them] | ai.rookAttacksKing[them])) == 0) {
+			// It cannot uncover any ray to the other king
+			return false;
+		}
+		long occupancy = (all & ~from) | to;
+		if (moveType == Move.TYPE_PASSANT) {
+			occupancy &= ~(us == AttacksInfo.W ? to >>> 8 : to << 8);
+		}
+		long bishopsOrQueens = myBishopsOrQueens & ~from;
+		long rooksOrQueens = myRooksOrQueens & ~from;
+		if (pieceAfter == Piece.BISHOP || pieceAfter == Piece.QUEEN) {
+			bishopsOrQueens |= to;
+		}
+		if (pieceAfter == Piece.ROOK || pieceAfter == Piece.QUEEN) {
+			rooksOrQueens |= to;
 		}
-		return j;
+		return (bbAttacks.getBishopAttacks(otherKingIndex, occupancy) & bishopsOrQueens) != 0
+				|| (bbAttacks.getRookAttacks(otherKingIndex, occupancy) & rooksOrQueens) != 0;
 	}
-}
\ No newline at end of file
+}
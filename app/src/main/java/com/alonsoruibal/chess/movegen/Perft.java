@@ -0,0 +1,185 @@
+package com.alonsoruibal.chess.movegen;
+
+import com.alonsoruibal.chess.Board;
+import com.alonsoruibal.chess.Move;
+import com.alonsoruibal.chess.Position;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a fixed depth, to check and measure the move generation.
+ * The last ply is bulk counted: the legal moves are counted but not played.
+ * Optionally it keeps a hash table of subtree counts keyed by zobrist key and depth,
+ * which is lockless so it can be shared by the parallel root split.
+ * An instance is not thread safe, the parallel mode creates one per root move.
+ */
+public class Perft {
+	private static final int MAX_MOVES = 256;
+
+	private final LegalMoveGenerator legalMoveGenerator = new LegalMoveGenerator();
+	private int[][] moves = new int[0][];
+
+	// Each entry stores data = nodes << 8 | depth and key ^ data, so torn writes from other threads are discarded
+	private final long[] hashKeys;
+	private final long[] hashData;
+	private final int hashMask;
+
+	/**
+	 * Perft without hash table
+	 */
+	public Perft() {
+		this(0);
+	}
+
+	/**
+	 * @param hashSize entries of the hash table, rounded down to a power of two, 0 to disable it
+	 */
+	public Perft(int hashSize) {
+		if (hashSize > 0) {
+			int size = Integer.highestOneBit(hashSize);
+			hashKeys = new long[size];
+			hashData = new long[size];
+			hashMask = size - 1;
+		} else {
+			hashKeys = null;
+			hashData = null;
+			hashMask = 0;
+		}
+	}
+
+	private Perft(long[] hashKeys, long[] hashData, int hashMask) {
+		this.hashKeys = hashKeys;
+		this.hashData = hashData;
+		this.hashMask = hashMask;
+	}
+
+	public long perft(Board board, int depth) {
+		if (depth <= 0) {
+			return 1;
+		}
+		return count(board, depth);
+	}
+
+	/**
+	 * Nodes below each legal root move, keyed by the move in UCI notation, in generation order
+	 */
+	public Map<String, Long> divide(Board board, int depth) {
+		Map<String, Long> divide = new LinkedHashMap<>();
+		int[] rootMoves = new int[MAX_MOVES];
+		int rootCount = legalMoveGenerator.generateMoves(board, rootMoves, 0);
+		for (int i = 0; i < rootCount; i++) {
+			board.doMove(rootMoves[i], false, false);
+			divide.put(Move.toString(rootMoves[i]), perft(board, depth - 1));
+			board.undoMove();
+		}
+		return divide;
+	}
+
+	/**
+	 * Splits the root moves across the pool, each one searched on its own board restored from a snapshot.
+	 * The hash table, if any, is shared by all the tasks.
+	 */
+	public long perftParallel(Board board, int depth, ForkJoinPool pool) {
+		if (depth <= 1) {
+			return perft(board, depth);
+		}
+		int[] rootMoves = new int[MAX_MOVES];
+		int rootCount = legalMoveGenerator.generateMoves(board, rootMoves, 0);
+		Position root = board.snapshot();
+
+		List<RootMoveTask> tasks = new ArrayList<>(rootCount);
+		for (int i = 0; i < rootCount; i++) {
+			RootMoveTask task = new RootMoveTask(root, rootMoves[i], depth - 1);
+			pool.execute(task);
+			tasks.add(task);
+		}
+		long nodes = 0;
+		for (RootMoveTask task : tasks) {
+			nodes += task.join();
+		}
+		return nodes;
+	}
+
+	/**
+	 * Parallel perft on a temporary pool with one thread per processor
+	 */
+	public long perftParallel(Board board, int depth) {
+		ForkJoinPool pool = new ForkJoinPool();
+		try {
+			return perftParallel(board, depth, pool);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private long count(Board board, int depth) {
+		long key = 0;
+		int hashIndex = 0;
+		if (hashKeys != null && depth > 1) {
+			key = board.getKey();
+			hashIndex = (int) key & hashMask;
+			long data = hashData[hashIndex];
+			if ((hashKeys[hashIndex] ^ data) == key && (data & 0xff) == depth) {
+				return data >>> 8;
+			}
+		}
+
+		int[] depthMoves = getMoves(depth);
+		int moveCount = legalMoveGenerator.generateMoves(board, depthMoves, 0);
+		if (depth == 1) {
+			return moveCount;
+		}
+		long nodes = 0;
+		for (int i = 0; i < moveCount; i++) {
+			board.doMove(depthMoves[i], false, false);
+			nodes += count(board, depth - 1);
+			board.undoMove();
+		}
+
+		if (hashKeys != null && depth > 1) {
+			long data = (nodes << 8) | depth;
+			hashKeys[hashIndex] = key ^ data;
+			hashData[hashIndex] = data;
+		}
+		return nodes;
+	}
+
+	private int[] getMoves(int depth) {
+		if (depth >= moves.length) {
+			int[][] newMoves = new int[depth + 1][];
+			System.arraycopy(moves, 0, newMoves, 0, moves.length);
+			moves = newMoves;
+		}
+		if (moves[depth] == null) {
+			moves[depth] = new int[MAX_MOVES];
+		}
+		return moves[depth];
+	}
+
+	private class RootMoveTask extends RecursiveTask<Long> {
+		private static final long serialVersionUID = -3217480586315547312L;
+
+		private final Position root;
+		private final int move;
+		private final int depth;
+
+		RootMoveTask(Position root, int move, int depth) {
+			this.root = root;
+			this.move = move;
+			this.depth = depth;
+		}
+
+		@Override
+		protected Long compute() {
+			Board board = new Board();
+			board.restore(root);
+			board.doMove(move, false, false);
+			return new Perft(hashKeys, hashData, hashMask).perft(board, depth);
+		}
+	}
+}
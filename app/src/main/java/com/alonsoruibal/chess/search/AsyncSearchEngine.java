@@ -0,0 +1,135 @@
+package com.alonsoruibal.chess.search;
+
+import com.alonsoruibal.chess.Config;
+import com.alonsoruibal.chess.Position;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the searches of a SearchEngine in its own thread, so callers do not block or manage threads.
+ * The searches are executed in order, and at most maxPending of them can wait in the queue,
+ * go() throws a RejectedExecutionException when it is full.
+ * Each search brings its own position, so the engine board is never touched from other threads.
+ */
+public class AsyncSearchEngine {
+	public static final int DEFAULT_MAX_PENDING = 4;
+
+	final SearchEngine engine;
+	private final ThreadPoolExecutor executor;
+	private volatile SearchFuture running;
+
+	public AsyncSearchEngine(Config config) {
+		this(config, DEFAULT_MAX_PENDING);
+	}
+
+	public AsyncSearchEngine(Config config, int maxPending) {
+		engine = new SearchEngine(config);
+		executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(Math.max(maxPending, 1)), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "AsyncSearchEngine");
+				thread.setDaemon(true);
+				return thread;
+			}
+		}) {
+			@Override
+			protected void beforeExecute(Thread thread, Runnable runnable) {
+				running = runnable instanceof SearchFuture ? (SearchFuture) runnable : null;
+			}
+
+			@Override
+			protected void afterExecute(Runnable runnable, Throwable throwable) {
+				running = null;
+			}
+
+			@Override
+			protected void terminated() {
+				engine.destroy();
+			}
+		};
+	}
+
+	/**
+	 * Searches the position
+	 *
+	 * @param observer receives the infos and the best move in the search thread, it may be null
+	 */
+	public SearchFuture go(Position position, SearchParameters searchParameters, SearchObserver observer) {
+		return go(position, new int[0], searchParameters, observer);
+	}
+
+	/**
+	 * Searches the position after the moves, which are kept in the board history to detect repetitions
+	 *
+	 * @param observer receives the infos and the best move in the search thread, it may be null
+	 */
+	public SearchFuture go(Position position, int[] moves, SearchParameters searchParameters, SearchObserver observer) {
+		SearchFuture future = new SearchFuture(this, position, moves.clone(), searchParameters, observer);
+		executor.execute(future);
+		return future;
+	}
+
+	/**
+	 * Stops the running search, it resolves with the best move found
+	 */
+	public void stop() {
+		SearchFuture running = this.running;
+		if (running != null) {
+			running.stop();
+		}
+	}
+
+	/**
+	 * Cancels the running and the pending searches
+	 */
+	public void cancelAll() {
+		for (SearchFuture future : getFutures()) {
+			future.cancel(false);
+		}
+		SearchFuture running = this.running;
+		if (running != null) {
+			running.cancel(false);
+		}
+	}
+
+	/**
+	 * Cancels all the searches and releases the engine when its thread finishes
+	 */
+	public void destroy() {
+		executor.shutdown();
+		cancelAll();
+	}
+
+	/**
+	 * Clears the transposition table, history and killers after the searches already submitted.
+	 * Like go(), it throws a RejectedExecutionException if the queue is full.
+	 */
+	public void clear() {
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				engine.clear();
+			}
+		});
+	}
+
+	void remove(SearchFuture future) {
+		executor.remove(future);
+	}
+
+	private List<SearchFuture> getFutures() {
+		List<SearchFuture> futures = new ArrayList<>();
+		for (Runnable runnable : executor.getQueue().toArray(new Runnable[0])) {
+			if (runnable instanceof SearchFuture) {
+				futures.add((SearchFuture) runnable);
+			}
+		}
+		return futures;
+	}
+}
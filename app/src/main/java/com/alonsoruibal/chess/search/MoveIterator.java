@@ -89,6 +89,7 @@ public class MoveIterator {
 	private int[] nonCapturesSee = new int[256];
 	private int[] nonCapturesScores = new int[256];
 
+
 	private int depth;
 	private int phase;
 
@@ -680,7 +681,7 @@ public class MoveIterator {
 					&& (ai.mayPin[them] & from) == 0) {
 				see = capture ? Board.SEE_PIECE_VALUES[pieceCaptured] : 0;
 			} else {
-				see = board.see(fromIndex, toIndex, pieceMoved, pieceCaptured);
+				see = board.see(fromIndex, toIndex, pieceMoved, pieceCaptured, ai);
 			}
 		}
 
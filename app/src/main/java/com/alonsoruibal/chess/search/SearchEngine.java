@@ -59,6 +59,11 @@ public class SearchEngine implements Runnable {
 	private static final int NODE_EVAL_DIFF_MIN = -250;
 	private static final int NODE_EVAL_DIFF_MAX = 250;
 
+	// Lazy SMP: each helper skips the iterations where ((depth + phase) / size) is odd, so the helpers spread
+	// over the next depths
+	private static final int[] HELPER_SKIP_SIZE = {1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4};
+	private static final int[] HELPER_SKIP_PHASE = {0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7};
+
 	private SearchParameters searchParameters;
 
 	protected boolean initialized = false;
@@ -66,9 +71,9 @@ public class SearchEngine implements Runnable {
 
 	private Config config;
 
-	// Think limits
-	private long thinkToTime = 0;
-	private int thinkToNodes = 0;
+	// Think limits, changed from other threads by stop()
+	private final TimeManager timeManager = new TimeManager();
+	private volatile int thinkToNodes = 0;
 	private int thinkToDepth = 0;
 
 	private Board board;
@@ -86,51 +91,43 @@ public class SearchEngine implements Runnable {
 	private int selDepth;
 	private int rootScore;
 	private int[] aspWindows;
-	private boolean panicTime;
+	private int aspirationAlpha;
+	private int aspirationBeta;
 	private boolean engineIsWhite;
 
 	public long startTime;
 
-	// For performance benching
 	private long nodeCount;
-	private long pvCutNodes;
-	private long pvAllNodes;
-	private long nullCutNodes;
-	private long nullAllNodes;
-
-	// Aspiration window
-	private static long aspirationWindowProbe = 0;
-	private static long aspirationWindowHit = 0;
-
-	// Futility pruning
-	private static long futilityHit = 0;
-
-	// Razoring
-	private static long razoringProbe = 0;
-	private static long razoringHit = 0;
-
-	// Singular Extension
-	private static long singularExtensionProbe = 0;
-	private static long singularExtensionHit = 0;
-
-	// Null Move
-	private static long nullMoveProbe = 0;
-	private static long nullMoveHit = 0;
-
-	// Transposition Table
-	private static long ttProbe = 0;
-	private static long ttPvHit = 0;
-	private static long ttLBHit = 0;
-	private static long ttUBHit = 0;
-	private static long ttEvalHit = 0;
-	private static long ttEvalProbe = 0;
+	// Counters of the current search, and of the last finished search with the helpers added
+	final SearchStatistics statistics = new SearchStatistics();
+	private SearchStatistics lastStatistics = new SearchStatistics();
 
 	private Random random;
 
 	private float[][] logMatrix;
 
+	// Lazy SMP helpers, searching the same position in other threads with their own board, nodes and history.
+	// They share the transposition table, only this engine reports the moves.
+	private final SearchEngine mainEngine; // null if this is not a helper
+	private final int helperIndex;
+	private SearchEngine[] helpers = new SearchEngine[0];
+	private Thread[] helperThreads = new Thread[0];
+	private TranspositionTable helpersTt;
+
+	// MultiPV: in each iteration the root is searched once for each line, excluding the moves of the previous lines
+	private int multiPvLines;
+	private int multiPvIndex;
+	private int[] multiPvMoves = new int[0];
+	private int[] multiPvScores = new int[0];
+
 	public SearchEngine(Config config) {
+		this(config, null, 0);
+	}
+
+	private SearchEngine(Config config, SearchEngine mainEngine, int helperIndex) {
 		this.config = config;
+		this.mainEngine = mainEngine;
+		this.helperIndex = helperIndex;
 		random = new Random();
 		board = new Board();
 		history = new short[6][64];
@@ -173,7 +170,7 @@ public class SearchEngine implements Runnable {
 			evaluator = new ExperimentalEvaluator();
 		}
 
-		tt = new TranspositionTable(config.getTranspositionTableSize());
+		tt = mainEngine == null ? new TranspositionTable(config.getTranspositionTableSize()) : mainEngine.tt.newView();
 
 		initialized = true;
 		if (debug) {
@@ -189,6 +186,12 @@ public class SearchEngine implements Runnable {
 		for (int i = 0; i < MAX_DEPTH; i++) {
 			nodes[i].clear();
 		}
+		for (SearchEngine helper : helpers) {
+			helper.clearHistory();
+			for (int i = 0; i < MAX_DEPTH; i++) {
+				helper.nodes[i].clear();
+			}
+		}
 	}
 
 	public void clearHistory() {
@@ -198,6 +201,7 @@ public class SearchEngine implements Runnable {
 	}
 
 	public void destroy() {
+		destroyHelpers();
 		config = null;
 		observer = null;
 		tt = null;
@@ -228,8 +232,22 @@ public class SearchEngine implements Runnable {
 		return bestMoveScore;
 	}
 
+	/**
+	 * Nodes searched by this engine and its helpers
+	 */
 	public long getNodeCount() {
-		return nodeCount;
+		long nodes = nodeCount;
+		for (SearchEngine helper : helpers) {
+			nodes += helper.nodeCount;
+		}
+		return nodes;
+	}
+
+	/**
+	 * Statistics of the last finished search, including the helpers
+	 */
+	public SearchStatistics getStatistics() {
+		return lastStatistics;
 	}
 
 	public Config getConfig() {
@@ -254,16 +272,13 @@ public class SearchEngine implements Runnable {
 		if (tt.getDepthAnalyzed() >= depthRemaining) {
 			switch (tt.getNodeType()) {
 				case TranspositionTable.TYPE_EXACT_SCORE:
-					ttPvHit++;
 					return true;
 				case TranspositionTable.TYPE_FAIL_LOW:
-					ttLBHit++;
 					if (tt.getScore() <= alpha) {
 						return true;
 					}
 					break;
 				case TranspositionTable.TYPE_FAIL_HIGH:
-					ttUBHit++;
 					if (tt.getScore() >= beta) {
 						return true;
 					}
@@ -277,10 +292,10 @@ public class SearchEngine implements Runnable {
 	 * It also changes the sign to the score depending of the turn
 	 */
 	public void evaluate(Node node, boolean foundTT) {
-		ttEvalProbe++;
+		statistics.ttEvalProbes++;
 
 		if (foundTT) {
-			ttEvalHit++;
+			statistics.ttEvalHits++;
 			node.staticEval = tt.getEval();
 			return;
 		}
@@ -326,10 +341,12 @@ public class SearchEngine implements Runnable {
 		// If we generate check, the entry in the TT has depthAnalyzed=1, because is better than without checks (depthAnalyzed=0)
 		int ttDepth = generateChecks || checkEvasion ? TranspositionTable.DEPTH_QS_CHECKS : TranspositionTable.DEPTH_QS_NO_CHECKS;
 
-		ttProbe++;
+		statistics.ttProbes++;
 		boolean foundTT = tt.search(board, distanceToInitialPly, false);
 		if (foundTT) {
+			statistics.ttHits++;
 			if (!isPv && canUseTT(ttDepth, alpha, beta)) {
+				statistics.ttCutoffs++;
 				return tt.getScore();
 			}
 			node.ttMove = tt.getBestMove();
@@ -373,6 +390,7 @@ public class SearchEngine implements Runnable {
 		int moveCount = 0;
 		while ((node.move = node.moveIterator.next()) != Move.NONE) {
 			nodeCount++;
+			statistics.qNodes++;
 			moveCount++;
 
 			// Futility pruning
@@ -424,7 +442,7 @@ public class SearchEngine implements Runnable {
 	public int search(int nodeType, int depthRemaining, int alpha, int beta, boolean allowPrePruning, int excludedMove) throws SearchFinishedException {
 		assert depthRemaining > 0 : "Wrong depthRemaining";
 
-		if (nodeType != NODE_ROOT && globalBestMove != Move.NONE && (System.currentTimeMillis() > thinkToTime || nodeCount > thinkToNodes)) {
+		if (nodeType != NODE_ROOT && globalBestMove != Move.NONE && (nodeCount > thinkToNodes || timeManager.isHardDeadlineReached(nodeCount))) {
 			throw new SearchFinishedException();
 		}
 
@@ -455,10 +473,12 @@ public class SearchEngine implements Runnable {
 		int ttDepthAnalyzed = 0;
 		int score = 0;
 
-		ttProbe++;
+		statistics.ttProbes++;
 		boolean foundTT = tt.search(board, distanceToInitialPly, excludedMove != Move.NONE);
 		if (foundTT) {
+			statistics.ttHits++;
 			if (nodeType != NODE_ROOT && canUseTT(depthRemaining, alpha, beta)) {
+				statistics.ttCutoffs++;
 				if (distanceToInitialPly + tt.getDepthAnalyzed() > selDepth) {
 					selDepth = distanceToInitialPly + tt.getDepthAnalyzed();
 				}
@@ -501,18 +521,18 @@ public class SearchEngine implements Runnable {
 					&& Math.abs(eval) < Evaluator.KNOWN_WIN
 					&& eval + RAZORING_MARGIN[depthRemaining] < beta
 					&& (board.pawns & ((board.whites & BitboardUtils.R7) | (board.blacks & BitboardUtils.R2))) == 0) { // No pawns on 7TH
-				razoringProbe++;
+				statistics.razoringProbes++;
 
 				if (depthRemaining <= PLY
 						&& eval + RAZORING_MARGIN[RAZORING_MARGIN.length - 1] < beta) {
-					razoringHit++;
+					statistics.razoringHits++;
 					return quiescentSearch(0, alpha, beta);
 				}
 
 				int rbeta = beta - RAZORING_MARGIN[depthRemaining];
 				int v = quiescentSearch(0, rbeta - 1, rbeta);
 				if (v < rbeta) {
-					razoringHit++;
+					statistics.razoringHits++;
 					return v;
 				}
 			}
@@ -534,7 +554,7 @@ public class SearchEngine implements Runnable {
 					&& eval >= beta
 					&& boardAllowsNullMove()) {
 
-				nullMoveProbe++;
+				statistics.nullMoveProbes++;
 
 				int R = 3 * PLY + (depthRemaining >> 2);
 
@@ -552,7 +572,7 @@ public class SearchEngine implements Runnable {
 					if (depthRemaining < 12 * PLY || (depthRemaining - R < PLY ?
 							quiescentSearch(0, beta - 1, beta) :
 							search(NODE_NULL, depthRemaining - R, beta - 1, beta, false, Move.NONE)) >= beta) {
-						nullMoveHit++;
+						statistics.nullMoveHits++;
 						return score;
 					}
 				} else {
@@ -594,7 +614,8 @@ public class SearchEngine implements Runnable {
 						nodeEvalDiff;
 
 		while ((node.move = node.moveIterator.next()) != Move.NONE) {
-			if (node.move == excludedMove) {
+			if (node.move == excludedMove
+					|| (nodeType == NODE_ROOT && isPreviousMultiPvMove(node.move))) {
 				continue;
 			}
 			nodeCount++;
@@ -620,11 +641,11 @@ public class SearchEngine implements Runnable {
 
 				int savedMove = node.move;
 
-				singularExtensionProbe++;
+				statistics.singularExtensionProbes++;
 				int seBeta = ttScore - SINGULAR_EXTENSION_MARGIN_PER_PLY * depthRemaining / PLY;
 				int excScore = search(nodeType, depthRemaining >> 1, seBeta - 1, seBeta, false, node.move);
 				if (excScore < seBeta) {
-					singularExtensionHit++;
+					statistics.singularExtensionHits++;
 					extension = PLY;
 				}
 
@@ -674,7 +695,7 @@ public class SearchEngine implements Runnable {
 					if (newDepth - reduction < FUTILITY_MARGIN_PARENT.length) {
 						int futilityValue = node.staticEval + FUTILITY_MARGIN_PARENT[newDepth - reduction];
 						if (futilityValue <= alpha) {
-							futilityHit++;
+							statistics.futilityHits++;
 							if (futilityValue > bestScore) {
 								bestScore = futilityValue;
 							}
@@ -731,10 +752,13 @@ public class SearchEngine implements Runnable {
 				bestScore = score;
 
 				if (nodeType == NODE_ROOT) {
-					globalBestMove = node.move;
-					bestMoveScore = score;
-
-					if (depthRemaining > 6 * PLY) {
+					if (multiPvIndex == 0) {
+						globalBestMove = node.move;
+						bestMoveScore = score;
+					}
+					if (multiPvLines > 1) {
+						multiPvMoves[multiPvIndex] = node.move;
+					} else if (depthRemaining > 6 * PLY) {
 						notifyMoveFound(node.move, score, alpha, beta);
 					}
 				}
@@ -742,6 +766,9 @@ public class SearchEngine implements Runnable {
 
 			// alpha/beta cut (fail high)
 			if (score >= beta) {
+				if (moveCount == 1) {
+					statistics.firstMoveCutNodes++;
+				}
 				break;
 			} else if (score <= alpha) {
 				historyBad(node, node.move, depthRemaining);
@@ -761,34 +788,49 @@ public class SearchEngine implements Runnable {
 				historyGood(node, bestMove, depthRemaining);
 			}
 			if (nodeType == NODE_NULL) {
-				nullCutNodes++;
+				statistics.nullCutNodes++;
 			} else {
-				pvCutNodes++;
+				statistics.pvCutNodes++;
 			}
 		} else {
 			if (nodeType == NODE_NULL) {
-				nullAllNodes++;
+				statistics.nullAllNodes++;
 			} else {
-				pvAllNodes++;
+				statistics.pvAllNodes++;
 			}
 		}
 
-		// Save in the transposition table
-		tt.set(board,
-				bestScore <= alpha ? TranspositionTable.TYPE_FAIL_LOW
-						: bestScore >= beta ? TranspositionTable.TYPE_FAIL_HIGH
-						: TranspositionTable.TYPE_EXACT_SCORE,
-				distanceToInitialPly, depthRemaining,
-				bestMove, bestScore, node.staticEval, excludedMove != Move.NONE);
+		// Save in the transposition table, but not the root of the next MultiPV lines, searched without the best moves
+		if (nodeType != NODE_ROOT || multiPvIndex == 0) {
+			tt.set(board,
+					bestScore <= alpha ? TranspositionTable.TYPE_FAIL_LOW
+							: bestScore >= beta ? TranspositionTable.TYPE_FAIL_HIGH
+							: TranspositionTable.TYPE_EXACT_SCORE,
+					distanceToInitialPly, depthRemaining,
+					bestMove, bestScore, node.staticEval, excludedMove != Move.NONE);
+		}
 
 		return bestScore;
 	}
 
+	private boolean isPreviousMultiPvMove(int move) {
+		for (int i = 0; i < multiPvIndex; i++) {
+			if (multiPvMoves[i] == move) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Notifies the best move to the SearchObserver filling a SearchStatusInfo object
 	 */
 	private void notifyMoveFound(int move, int score, int alpha, int beta) {
+		if (mainEngine != null) {
+			return;
+		}
 		long time = System.currentTimeMillis();
+		long nodeCount = getNodeCount();
 
 		SearchStatusInfo info = new SearchStatusInfo();
 		info.setDepth(depth);
@@ -807,53 +849,69 @@ public class SearchEngine implements Runnable {
 		}
 	}
 
+	/**
+	 * Notifies the MultiPV lines of the last iteration, ranked by score, to the SearchObserver:
+	 * one info for each line and then the ranked list
+	 */
+	private void notifyMultiPv() {
+		long time = System.currentTimeMillis();
+		long nodeCount = getNodeCount();
+
+		SearchStatusInfo[] lines = new SearchStatusInfo[multiPvLines];
+		// From the last line, so the ponder move is set from the PV of the best line
+		for (int i = multiPvLines - 1; i >= 0; i--) {
+			SearchStatusInfo info = new SearchStatusInfo();
+			info.setDepth(depth);
+			info.setSelDepth(selDepth);
+			info.setMultiPv(i + 1);
+			info.setTime(time - startTime);
+			globalPonderMove = Move.NONE;
+			info.setPv(getPv(multiPvMoves[i]));
+			info.setScore(multiPvScores[i]);
+			info.setNodes(nodeCount);
+			info.setHashFull(tt.getHashFull());
+			info.setNps((int) (1000 * nodeCount / (time - startTime + 1)));
+			lines[i] = info;
+		}
+
+		for (SearchStatusInfo info : lines) {
+			if (observer != null) {
+				observer.info(info);
+			} else {
+				logger.debug(info.toString());
+			}
+		}
+		if (observer != null) {
+			observer.multiPv(Arrays.asList(lines));
+		}
+	}
+
 	/**
 	 * It searches for the best movement
 	 */
 	public void go(SearchParameters searchParameters) {
+		if (start(searchParameters)) {
+			run();
+		}
+	}
+
+	/**
+	 * Marks the search as started and sets its parameters, run() must be called after it returns true
+	 */
+	boolean start(SearchParameters searchParameters) {
 		synchronized (startStopSearchLock) {
 			if (!initialized || searching) {
-				return;
+				return false;
 			}
 			searching = true;
 			setInitialSearchParameters(searchParameters);
-		}
-		run();
-	}
-
-	private void searchStats() {
-		logger.debug("Positions         = " + nodeCount);
-		logger.debug("PV Cut            = " + pvCutNodes + " " + (100 * pvCutNodes / (pvCutNodes + pvAllNodes + 1)) + "%");
-		logger.debug("PV All            = " + pvAllNodes);
-		logger.debug("Null Cut          = " + nullCutNodes + " " + (100 * nullCutNodes / (nullCutNodes + nullAllNodes + 1)) + "%");
-		logger.debug("Null All          = " + nullAllNodes);
-		if (aspirationWindowProbe > 0) {
-			logger.debug("Asp Win      Hits = " + (100 * aspirationWindowHit / aspirationWindowProbe) + "%");
-		}
-		if (ttEvalProbe > 0) {
-			logger.debug("TT Eval      Hits = " + ttEvalHit + " " + (100 * ttEvalHit / ttEvalProbe) + "%");
-		}
-		if (ttProbe > 0) {
-			logger.debug("TT PV        Hits = " + ttPvHit + " " + (1000000 * ttPvHit / ttProbe) + " per 10^6");
-			logger.debug("TT LB        Hits = " + ttProbe + " " + (100 * ttLBHit / ttProbe) + "%");
-			logger.debug("TT UB        Hits = " + ttUBHit + " " + (100 * ttUBHit / ttProbe) + "%");
-		}
-		logger.debug("Futility     Hits = " + futilityHit);
-		if (nullMoveProbe > 0) {
-			logger.debug("Null Move    Hits = " + nullMoveHit + " " + (100 * nullMoveHit / nullMoveProbe) + "%");
-		}
-		if (razoringProbe > 0) {
-			logger.debug("Razoring     Hits = " + razoringHit + " " + (100 * razoringHit / razoringProbe) + "%");
-		}
-		if (singularExtensionProbe > 0) {
-			logger.debug("S.Extensions Hits = " + singularExtensionHit + " " + (100 * singularExtensionHit / singularExtensionProbe) + "%");
+			return true;
 		}
 	}
 
 	private void prepareRun() throws SearchFinishedException {
 		logger.debug("Board\n" + board);
 
-		panicTime = false;
 		globalBestMove = Move.NONE;
 		globalPonderMove = Move.NONE;
 
@@ -883,55 +941,116 @@ public class SearchEngine implements Runnable {
 		}
 		tt.newGeneration();
 		aspWindows = ASPIRATION_WINDOW_SIZES;
+
+		multiPvLines = Math.max(1, Math.min(searchParameters.getMultiPv(), board.getLegalMoves(new int[256])));
+		if (multiPvMoves.length < multiPvLines) {
+			multiPvMoves = new int[multiPvLines];
+			multiPvScores = new int[multiPvLines];
+		}
+		Arrays.fill(multiPvMoves, Move.NONE);
+		Arrays.fill(multiPvScores, rootScore);
 	}
 
 	private void runStepped() throws SearchFinishedException {
 		selDepth = 0;
+		long iterationStartTime = System.nanoTime();
+		long iterationStartNodes = nodeCount;
+
+		multiPvIndex = 0;
+		rootScore = aspirationSearch(rootScore);
+		if (multiPvLines > 1) {
+			multiPvScores[0] = rootScore;
+			for (multiPvIndex = 1; multiPvIndex < multiPvLines; multiPvIndex++) {
+				multiPvScores[multiPvIndex] = aspirationSearch(multiPvScores[multiPvIndex]);
+			}
+			multiPvIndex = 0;
+			sortMultiPv();
+			globalBestMove = multiPvMoves[0];
+			bestMoveScore = multiPvScores[0];
+			rootScore = multiPvScores[0];
+		}
+
+		statistics.depth = depth;
+		statistics.selDepth = Math.max(statistics.selDepth, selDepth);
+		statistics.iterationNodes[depth] = nodeCount - iterationStartNodes;
+
+		boolean timeExhausted = false;
+		if (mainEngine == null) { // Helpers do not report moves nor manage the time, they are stopped by the main engine
+			if (multiPvLines > 1) {
+				notifyMultiPv();
+			} else if (depth <= 6) {
+				notifyMoveFound(globalBestMove, bestMoveScore, aspirationAlpha, aspirationBeta);
+			}
+			timeExhausted = timeManager.iterationCompleted(depth, globalBestMove, rootScore, System.nanoTime() - iterationStartTime);
+		}
+
+		if ((timeManager.isManaged() && ( // Under time restrictions and...
+				Math.abs(rootScore) > VALUE_IS_MATE // Mate found or
+						|| timeExhausted)) // It will not likely finish the next iteration before the soft deadline
+				|| depth == MAX_DEPTH
+				|| depth >= thinkToDepth
+				|| Math.abs(rootScore) == Evaluator.MATE) { // Search limit reached
+			throw new SearchFinishedException();
+		}
+		depth++;
+		if (mainEngine != null) {
+			int skip = (helperIndex - 1) % HELPER_SKIP_SIZE.length;
+			while (((depth + HELPER_SKIP_PHASE[skip]) / HELPER_SKIP_SIZE[skip]) % 2 != 0 && depth < MAX_DEPTH) {
+				depth++;
+			}
+		}
+	}
+
+	/**
+	 * Searches the root iterating aspiration windows around the initial score, leaves the last window in aspirationAlpha
+	 * and aspirationBeta
+	 */
+	private int aspirationSearch(int initialScore) throws SearchFinishedException {
 		int failHighCount = 0;
 		int failLowCount = 0;
-		int initialScore = rootScore;
 		int alpha = (initialScore - aspWindows[failLowCount] > -Evaluator.MATE ? initialScore - aspWindows[failLowCount] : -Evaluator.MATE);
 		int beta = (initialScore + aspWindows[failHighCount] < Evaluator.MATE ? initialScore + aspWindows[failHighCount] : Evaluator.MATE);
-		int previousRootScore = rootScore;
-		long time1 = System.currentTimeMillis();
+		int score;
 
 		// Iterate aspiration windows
 		while (true) {
-			aspirationWindowProbe++;
-			rootScore = search(NODE_ROOT, depth * PLY, alpha, beta, false, Move.NONE);
+			statistics.aspirationWindowProbes++;
+			score = search(NODE_ROOT, depth * PLY, alpha, beta, false, Move.NONE);
 
-			if (rootScore <= alpha) {
+			if (score <= alpha) {
 				failLowCount++;
 				alpha = (failLowCount < aspWindows.length && (initialScore - aspWindows[failLowCount] > -Evaluator.MATE) ? initialScore
 						- aspWindows[failLowCount] : -Evaluator.MATE - 1);
-			} else if (rootScore >= beta) {
+			} else if (score >= beta) {
 				failHighCount++;
 				beta = (failHighCount < aspWindows.length && (initialScore + aspWindows[failHighCount] < Evaluator.MATE) ? initialScore
 						+ aspWindows[failHighCount] : Evaluator.MATE + 1);
 			} else {
-				aspirationWindowHit++;
+				statistics.aspirationWindowHits++;
 				break;
 			}
 		}
+		aspirationAlpha = alpha;
+		aspirationBeta = beta;
+		return score;
+	}
 
-		long time2 = System.currentTimeMillis();
-
-		if (depth <= 6) {
-			notifyMoveFound(globalBestMove, bestMoveScore, alpha, beta);
-		} else if (!panicTime && rootScore < previousRootScore - 100) {
-			panicTime = true;
-			updateSearchParameters(searchParameters);
-		}
-
-		if ((searchParameters.manageTime() && ( // Under time restrictions and...
-				Math.abs(rootScore) > VALUE_IS_MATE // Mate found or
-						|| (time2 + ((time2 - time1) << 1)) > thinkToTime)) // It will not likely finish the next iteration
-				|| depth == MAX_DEPTH
-				|| depth >= thinkToDepth
-				|| Math.abs(rootScore) == Evaluator.MATE) { // Search limit reached
-			throw new SearchFinishedException();
+	/**
+	 * Sorts the MultiPV lines by score, a later line may score better than the previous ones
+	 */
+	private void sortMultiPv() {
+		for (int i = 1; i < multiPvLines; i++) {
+			int move = multiPvMoves[i];
+			int score = multiPvScores[i];
+			int j = i - 1;
+			while (j >= 0 && multiPvScores[j] < score) {
+				multiPvMoves[j + 1] = multiPvMoves[j];
+				multiPvScores[j + 1] = multiPvScores[j];
+				j--;
+			}
+			multiPvMoves[j + 1] = move;
+			multiPvScores[j + 1] = score;
 		}
-		depth++;
 	}
 
 	public void run() {
@@ -940,15 +1059,27 @@ public class SearchEngine implements Runnable {
 		synchronized (searchLock) {
 			try {
 				prepareRun();
+				startHelpers();
 				while (true) {
 					runStepped();
 				}
 			} catch (SearchFinishedException ignored) {
 			}
+			stopHelpers();
 
 			// Return the board to the initial position
 			board.undoMove(initialPly);
 
+			statistics.nodes = nodeCount;
+			statistics.time = System.currentTimeMillis() - startTime;
+			collectAttackersToStatistics();
+			lastStatistics = statistics.copy();
+			for (SearchEngine helper : helpers) {
+				helper.statistics.nodes = helper.nodeCount;
+				helper.collectAttackersToStatistics();
+				lastStatistics.add(helper.statistics);
+			}
+
 			bestMove = globalBestMove;
 			ponderMove = globalPonderMove;
 
@@ -956,11 +1087,106 @@ public class SearchEngine implements Runnable {
 		}
 
 		if (observer != null) {
+			observer.statistics(lastStatistics);
 			observer.bestMove(bestMove, ponderMove);
 		}
 		if (debug) {
-			searchStats();
+			logger.debug(lastStatistics.toString());
+		}
+	}
+
+	/**
+	 * Moves the counters of the attackers cache of each node to the statistics
+	 */
+	private void collectAttackersToStatistics() {
+		for (Node node : nodes) {
+			statistics.attackersToProbes += node.attacksInfo.attackersToProbes;
+			statistics.attackersToHits += node.attacksInfo.attackersToHits;
+			node.attacksInfo.attackersToProbes = 0;
+			node.attacksInfo.attackersToHits = 0;
+		}
+	}
+
+	/**
+	 * Starts a thread for each helper, searching the position of this engine from the same transposition table.
+	 * The helpers are created again if the number of threads or the transposition table change.
+	 */
+	private void startHelpers() {
+		int helperCount = config.getThreads() - 1;
+		if (helperCount != helpers.length || helpersTt != tt) {
+			destroyHelpers();
+			helpers = new SearchEngine[Math.max(helperCount, 0)];
+			helperThreads = new Thread[helpers.length];
+			for (int i = 0; i < helpers.length; i++) {
+				helpers[i] = new SearchEngine(config, this, i + 1);
+			}
+			helpersTt = tt;
+		}
+		for (int i = 0; i < helpers.length; i++) {
+			final SearchEngine helper = helpers[i];
+			helper.board.copyFrom(board, true);
+			helper.startTime = startTime;
+			helper.nodeCount = 0;
+			helper.statistics.clear();
+			helper.rootScore = rootScore;
+			helper.searchParameters = new SearchParameters();
+			helper.searchParameters.setInfinite(true);
+			helper.timeManager.start();
+			helper.timeManager.update(helper.searchParameters, true);
+			helper.thinkToNodes = Integer.MAX_VALUE;
+			helper.thinkToDepth = MAX_DEPTH;
+			helperThreads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					helper.runHelper();
+				}
+			}, "SearchEngine helper " + helper.helperIndex);
+			helperThreads[i].setDaemon(true);
+			helperThreads[i].start();
+		}
+	}
+
+	private void runHelper() {
+		multiPvLines = 1;
+		multiPvIndex = 0;
+		initialPly = board.getMoveNumber();
+		globalBestMove = Move.NONE;
+		depth = 1;
+		aspWindows = ASPIRATION_WINDOW_SIZES;
+		try {
+			while (true) {
+				runStepped();
+			}
+		} catch (SearchFinishedException ignored) {
+		}
+		board.undoMove(initialPly);
+	}
+
+	/**
+	 * Stops the helpers and waits for their threads
+	 */
+	private void stopHelpers() {
+		for (int i = 0; i < helpers.length; i++) {
+			if (helperThreads[i] != null) {
+				helpers[i].stop();
+				try {
+					helperThreads[i].join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				helperThreads[i] = null;
+			}
+		}
+	}
+
+	private void destroyHelpers() {
+		stopHelpers();
+		for (SearchEngine helper : helpers) {
+			helper.destroy();
 		}
+		helpers = new SearchEngine[0];
+		helperThreads = new Thread[0];
+		helpersTt = null;
 	}
 
 	/**
@@ -970,6 +1196,8 @@ public class SearchEngine implements Runnable {
 		engineIsWhite = board.getTurn();
 		startTime = System.currentTimeMillis();
 		nodeCount = 0;
+		statistics.clear();
+		timeManager.start();
 		updateSearchParameters(searchParameters);
 	}
 
@@ -981,7 +1209,7 @@ public class SearchEngine implements Runnable {
 
 		thinkToNodes = searchParameters.getNodes();
 		thinkToDepth = searchParameters.getDepth();
-		thinkToTime = searchParameters.calculateMoveTime(engineIsWhite, startTime, panicTime);
+		timeManager.update(searchParameters, engineIsWhite);
 	}
 
 	/**
@@ -1023,7 +1251,7 @@ public class SearchEngine implements Runnable {
 	}
 
 	public void stop() {
-		thinkToTime = 0;
+		timeManager.stop();
 		thinkToNodes = 0;
 		thinkToDepth = 0;
 	}
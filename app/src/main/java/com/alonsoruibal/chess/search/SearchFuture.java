@@ -0,0 +1,222 @@
+package com.alonsoruibal.chess.search;
+
+import com.alonsoruibal.chess.Move;
+import com.alonsoruibal.chess.Position;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A search submitted to an AsyncSearchEngine, resolving with the best move.
+ * stop() ends the search early and it still resolves with the best move found,
+ * cancel() discards the search and get() throws a CancellationException.
+ * The observer receives the progressive infos and the best move in the search thread.
+ */
+public class SearchFuture implements Future<Integer>, Runnable {
+	private static final int PENDING = 0;
+	private static final int RUNNING = 1;
+	private static final int DONE = 2;
+	private static final int CANCELLED = 3;
+	private static final int FAILED = 4;
+
+	private final AsyncSearchEngine asyncEngine;
+	private final Position position;
+	private final int[] moves;
+	private final SearchParameters searchParameters;
+	private final SearchObserver observer;
+
+	private int state = PENDING;
+	private boolean stopRequested;
+	private int bestMove = Move.NONE;
+	private int ponderMove = Move.NONE;
+	private Throwable failure;
+	private volatile SearchStatusInfo lastInfo;
+
+	SearchFuture(AsyncSearchEngine asyncEngine, Position position, int[] moves, SearchParameters searchParameters, SearchObserver observer) {
+		this.asyncEngine = asyncEngine;
+		this.position = position;
+		this.moves = moves;
+		this.searchParameters = searchParameters;
+		this.observer = observer;
+	}
+
+	/**
+	 * Executed by the AsyncSearchEngine thread
+	 */
+	@Override
+	public void run() {
+		SearchEngine engine = asyncEngine.engine;
+		try {
+			synchronized (engine.startStopSearchLock) {
+				synchronized (this) {
+					if (state != PENDING) {
+						return;
+					}
+					state = RUNNING;
+				}
+				engine.getBoard().restore(position);
+				for (int move : moves) {
+					if (!engine.getBoard().doMove(move, true, false)) {
+						throw new IllegalArgumentException("Illegal move " + Move.toString(move));
+					}
+				}
+				engine.setObserver(new Observer());
+				if (!engine.start(searchParameters)) {
+					throw new IllegalStateException("Search engine not ready");
+				}
+				if (stopRequested) {
+					// The search always finds a move before checking the limits
+					engine.stop();
+				}
+			}
+			engine.run();
+		} catch (RuntimeException e) {
+			engine.searching = false;
+			finish(FAILED, e);
+		}
+	}
+
+	private class Observer implements SearchObserver {
+		@Override
+		public void info(SearchStatusInfo info) {
+			lastInfo = info;
+			if (observer != null && !isCancelled()) {
+				observer.info(info);
+			}
+		}
+
+		@Override
+		public void multiPv(List<SearchStatusInfo> lines) {
+			if (observer != null && !isCancelled()) {
+				observer.multiPv(lines);
+			}
+		}
+
+		@Override
+		public void statistics(SearchStatistics statistics) {
+			if (observer != null && !isCancelled()) {
+				observer.statistics(statistics);
+			}
+		}
+
+		@Override
+		public void bestMove(int bestMove, int ponder) {
+			synchronized (SearchFuture.this) {
+				SearchFuture.this.bestMove = bestMove;
+				SearchFuture.this.ponderMove = ponder;
+			}
+			if (finish(DONE, null) && observer != null) {
+				observer.bestMove(bestMove, ponder);
+			}
+		}
+	}
+
+	private synchronized boolean finish(int finalState, Throwable failure) {
+		if (state != PENDING && state != RUNNING) {
+			return false;
+		}
+		state = finalState;
+		this.failure = failure;
+		notifyAll();
+		return true;
+	}
+
+	/**
+	 * Ends the search as soon as possible, it resolves with the best move found until then
+	 */
+	public void stop() {
+		synchronized (asyncEngine.engine.startStopSearchLock) {
+			synchronized (this) {
+				if (state == PENDING) {
+					stopRequested = true;
+				} else if (state == RUNNING) {
+					asyncEngine.engine.stop();
+				}
+			}
+		}
+	}
+
+	/**
+	 * A pending search is removed from the queue, a running one is stopped and its best move discarded.
+	 * The search is always stopped cooperatively, so mayInterruptIfRunning is ignored.
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		synchronized (asyncEngine.engine.startStopSearchLock) {
+			synchronized (this) {
+				boolean running = state == RUNNING;
+				if (!finish(CANCELLED, null)) {
+					return false;
+				}
+				if (running) {
+					asyncEngine.engine.stop();
+				}
+			}
+		}
+		asyncEngine.remove(this);
+		return true;
+	}
+
+	@Override
+	public synchronized boolean isCancelled() {
+		return state == CANCELLED;
+	}
+
+	@Override
+	public synchronized boolean isDone() {
+		return state >= DONE;
+	}
+
+	public synchronized boolean isRunning() {
+		return state == RUNNING;
+	}
+
+	@Override
+	public synchronized Integer get() throws InterruptedException, ExecutionException {
+		while (state < DONE) {
+			wait();
+		}
+		return result();
+	}
+
+	@Override
+	public synchronized Integer get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (state < DONE) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				throw new TimeoutException();
+			}
+			TimeUnit.NANOSECONDS.timedWait(this, remaining);
+		}
+		return result();
+	}
+
+	private Integer result() throws ExecutionException {
+		if (state == CANCELLED) {
+			throw new CancellationException();
+		}
+		if (state == FAILED) {
+			throw new ExecutionException(failure);
+		}
+		return bestMove;
+	}
+
+	/**
+	 * The ponder move of the result, Move.NONE until the search is done
+	 */
+	public synchronized int getPonderMove() {
+		return ponderMove;
+	}
+
+	/**
+	 * The last info sent by the engine, null if there is none yet
+	 */
+	public SearchStatusInfo getLastInfo() {
+		return lastInfo;
+	}
+}
@@ -1,9 +1,23 @@
 package com.alonsoruibal.chess.search;
 
+import java.util.List;
+
 public interface SearchObserver {
 
 	void info(SearchStatusInfo info);
 
 	void bestMove(int bestMove, int ponder);
 
+	/**
+	 * In MultiPV mode, the lines of each completed iteration ranked by score (each one is also sent to info)
+	 */
+	default void multiPv(List<SearchStatusInfo> lines) {
+	}
+
+	/**
+	 * The statistics of the finished search, sent just before the best move
+	 */
+	default void statistics(SearchStatistics statistics) {
+	}
+
 }
\ No newline at end of file
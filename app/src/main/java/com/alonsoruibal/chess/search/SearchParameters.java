@@ -1,13 +1,6 @@
 package com.alonsoruibal.chess.search;
 
-import com.alonsoruibal.chess.log.Logger;
-
 public class SearchParameters {
-	/**
-	 * Logger for this class
-	 */
-	private static final Logger logger = Logger.getLogger("SearchParameters");
-
 	// UCI parameters
 	// Remaining time
 	int wtime, btime;
@@ -25,10 +18,10 @@ public class SearchParameters {
 	int moveTime = Integer.MAX_VALUE;
 	// Think infinite
 	boolean infinite;
+	// Number of best lines to search, with their scores
+	int multiPv = 1;
 	boolean ponder;
 
-	boolean manageTime;
-
 	public boolean isPonder() {
 		return ponder;
 	}
@@ -117,45 +110,12 @@ public class SearchParameters {
 		this.infinite = infinite;
 	}
 
-	/**
-	 * Used to detect if it can add more time in case of panic or apply other heuristics to reduce time
-	 *
-	 * @return true if the engine is responsible of managing the remaining time
-	 */
-	public boolean manageTime() {
-		return manageTime;
-	}
-
-	/**
-	 * Time management routine
-	 * @param panicTime is set to true when the score fails low in the root node by 100
-	 *
-	 * @return the time to think, or Long.MAX_VALUE if it can think an infinite time
-	 */
-	public long calculateMoveTime(boolean engineIsWhite, long startTime, boolean panicTime) {
-		manageTime = false;
-		if (ponder || infinite || depth < Integer.MAX_VALUE || nodes < Integer.MAX_VALUE) {
-			return Long.MAX_VALUE;
-		}
-		if (moveTime != Integer.MAX_VALUE) {
-			return startTime + moveTime;
-		}
-		manageTime = true;
-
-		int calcTime = 0;
-		int timeAvailable = engineIsWhite ? wtime : btime;
-		int timeInc = engineIsWhite ? winc : binc;
-		if (timeAvailable > 0) {
-			calcTime = timeAvailable / 25;
-		}
-		if (panicTime) { // x 4
-			calcTime = calcTime << 2;
-		}
-		calcTime = Math.min(calcTime, timeAvailable >>> 3); // Never consume more than time / 8
-		calcTime += timeInc;
-
-		logger.debug("Thinking for " + calcTime + "Ms");
-		return startTime + calcTime;
+	public int getMultiPv() {
+		return multiPv;
+	}
+
+	public void setMultiPv(int multiPv) {
+		this.multiPv = multiPv;
 	}
 
 	public static SearchParameters get(int moveTime) {
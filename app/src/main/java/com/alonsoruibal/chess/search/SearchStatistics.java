@@ -0,0 +1,295 @@
+package com.alonsoruibal.chess.search;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Counters of a single search, each engine increments its own instance without synchronization.
+ * When the search finishes the counters of the helpers are added to the ones of the main engine,
+ * and that copy is sent to the SearchObserver.
+ */
+public class SearchStatistics {
+	// Moves searched, in the main search and in the quiescence search
+	long nodes;
+	long qNodes;
+
+	// Transposition table
+	long ttProbes;
+	long ttHits;
+	long ttCutoffs;
+	long ttEvalProbes;
+	long ttEvalHits;
+
+	// Nodes by their result, and the fail high nodes where the first move caused the cutoff
+	long pvCutNodes;
+	long pvAllNodes;
+	long nullCutNodes;
+	long nullAllNodes;
+	long firstMoveCutNodes;
+
+	long aspirationWindowProbes;
+	long aspirationWindowHits;
+	long futilityHits;
+	long razoringProbes;
+	long razoringHits;
+	long nullMoveProbes;
+	long nullMoveHits;
+	long singularExtensionProbes;
+	long singularExtensionHits;
+	// Attackers of a square requested by the SEE, and the ones kept from a previous SEE in the same node
+	long attackersToProbes;
+	long attackersToHits;
+
+	int depth;
+	int selDepth;
+	long time;
+	// Nodes of the main engine searched in each completed iteration, by depth
+	final long[] iterationNodes = new long[SearchEngine.MAX_DEPTH + 1];
+
+	public void clear() {
+		nodes = 0;
+		qNodes = 0;
+		ttProbes = 0;
+		ttHits = 0;
+		ttCutoffs = 0;
+		ttEvalProbes = 0;
+		ttEvalHits = 0;
+		pvCutNodes = 0;
+		pvAllNodes = 0;
+		nullCutNodes = 0;
+		nullAllNodes = 0;
+		firstMoveCutNodes = 0;
+		aspirationWindowProbes = 0;
+		aspirationWindowHits = 0;
+		futilityHits = 0;
+		razoringProbes = 0;
+		razoringHits = 0;
+		nullMoveProbes = 0;
+		nullMoveHits = 0;
+		singularExtensionProbes = 0;
+		singularExtensionHits = 0;
+		attackersToProbes = 0;
+		attackersToHits = 0;
+		depth = 0;
+		selDepth = 0;
+		time = 0;
+		Arrays.fill(iterationNodes, 0);
+	}
+
+	/**
+	 * Adds the counters of a helper, the depths, time and iterations are kept from this one
+	 */
+	public void add(SearchStatistics other) {
+		nodes += other.nodes;
+		qNodes += other.qNodes;
+		ttProbes += other.ttProbes;
+		ttHits += other.ttHits;
+		ttCutoffs += other.ttCutoffs;
+		ttEvalProbes += other.ttEvalProbes;
+		ttEvalHits += other.ttEvalHits;
+		pvCutNodes += other.pvCutNodes;
+		pvAllNodes += other.pvAllNodes;
+		nullCutNodes += other.nullCutNodes;
+		nullAllNodes += other.nullAllNodes;
+		firstMoveCutNodes += other.firstMoveCutNodes;
+		aspirationWindowProbes += other.aspirationWindowProbes;
+		aspirationWindowHits += other.aspirationWindowHits;
+		futilityHits += other.futilityHits;
+		razoringProbes += other.razoringProbes;
+		razoringHits += other.razoringHits;
+		nullMoveProbes += other.nullMoveProbes;
+		nullMoveHits += other.nullMoveHits;
+		singularExtensionProbes += other.singularExtensionProbes;
+		singularExtensionHits += other.singularExtensionHits;
+		attackersToProbes += other.attackersToProbes;
+		attackersToHits += other.attackersToHits;
+	}
+
+	public SearchStatistics copy() {
+		SearchStatistics copy = new SearchStatistics();
+		copy.add(this);
+		copy.depth = depth;
+		copy.selDepth = selDepth;
+		copy.time = time;
+		System.arraycopy(iterationNodes, 0, copy.iterationNodes, 0, iterationNodes.length);
+		return copy;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	public long getQNodes() {
+		return qNodes;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public int getSelDepth() {
+		return selDepth;
+	}
+
+	/**
+	 * Search time in milliseconds
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	public long getNps() {
+		return 1000 * nodes / (time + 1);
+	}
+
+	public double getTtHitRate() {
+		return rate(ttHits, ttProbes);
+	}
+
+	/**
+	 * Rate of the TT probes returning the score without searching
+	 */
+	public double getTtCutoffRate() {
+		return rate(ttCutoffs, ttProbes);
+	}
+
+	public double getTtEvalHitRate() {
+		return rate(ttEvalHits, ttEvalProbes);
+	}
+
+	/**
+	 * Rate of the fail high nodes where the first move caused the cutoff, a measure of the move ordering
+	 */
+	public double getFirstMoveCutRate() {
+		return rate(firstMoveCutNodes, pvCutNodes + nullCutNodes);
+	}
+
+	public double getPvCutRate() {
+		return rate(pvCutNodes, pvCutNodes + pvAllNodes);
+	}
+
+	public double getNullCutRate() {
+		return rate(nullCutNodes, nullCutNodes + nullAllNodes);
+	}
+
+	public double getAspirationWindowHitRate() {
+		return rate(aspirationWindowHits, aspirationWindowProbes);
+	}
+
+	public long getFutilityHits() {
+		return futilityHits;
+	}
+
+	public double getRazoringHitRate() {
+		return rate(razoringHits, razoringProbes);
+	}
+
+	public double getNullMoveHitRate() {
+		return rate(nullMoveHits, nullMoveProbes);
+	}
+
+	public double getSingularExtensionHitRate() {
+		return rate(singularExtensionHits, singularExtensionProbes);
+	}
+
+	/**
+	 * Rate of the SEE attackers taken from the cache of the node attacks info
+	 */
+	public double getAttackersToHitRate() {
+		return rate(attackersToHits, attackersToProbes);
+	}
+
+	/**
+	 * Nodes of the main engine in the iteration of that depth, 0 if it was not completed
+	 */
+	public long getIterationNodes(int depth) {
+		return depth >= 1 && depth < iterationNodes.length ? iterationNodes[depth] : 0;
+	}
+
+	/**
+	 * Effective branching factor: nodes of the last completed iteration over the nodes of the previous one,
+	 * 0 if less than two iterations were completed
+	 */
+	public double getBranchingFactor() {
+		int last = iterationNodes.length - 1;
+		while (last > 1 && iterationNodes[last] == 0) {
+			last--;
+		}
+		return last > 1 && iterationNodes[last - 1] > 0 ? (double) iterationNodes[last] / iterationNodes[last - 1] : 0;
+	}
+
+	private static double rate(long hits, long probes) {
+		return probes == 0 ? 0 : (double) hits / probes;
+	}
+
+	/**
+	 * A flat JSON object with the counters and the rates, for regression tracking
+	 */
+	public String toJson() {
+		StringBuilder sb = new StringBuilder();
+		sb.append('{');
+		appendJson(sb, "depth", depth);
+		appendJson(sb, "selDepth", selDepth);
+		appendJson(sb, "time", time);
+		appendJson(sb, "nodes", nodes);
+		appendJson(sb, "qNodes", qNodes);
+		appendJson(sb, "nps", getNps());
+		appendJson(sb, "branchingFactor", getBranchingFactor());
+		appendJson(sb, "ttProbes", ttProbes);
+		appendJson(sb, "ttHitRate", getTtHitRate());
+		appendJson(sb, "ttCutoffRate", getTtCutoffRate());
+		appendJson(sb, "ttEvalHitRate", getTtEvalHitRate());
+		appendJson(sb, "pvCutNodes", pvCutNodes);
+		appendJson(sb, "pvAllNodes", pvAllNodes);
+		appendJson(sb, "nullCutNodes", nullCutNodes);
+		appendJson(sb, "nullAllNodes", nullAllNodes);
+		appendJson(sb, "firstMoveCutRate", getFirstMoveCutRate());
+		appendJson(sb, "aspirationWindowHitRate", getAspirationWindowHitRate());
+		appendJson(sb, "futilityHits", futilityHits);
+		appendJson(sb, "razoringHitRate", getRazoringHitRate());
+		appendJson(sb, "nullMoveHitRate", getNullMoveHitRate());
+		appendJson(sb, "singularExtensionHitRate", getSingularExtensionHitRate());
+		appendJson(sb, "attackersToProbes", attackersToProbes);
+		appendJson(sb, "attackersToHitRate", getAttackersToHitRate());
+		sb.setLength(sb.length() - 1);
+		sb.append('}');
+		return sb.toString();
+	}
+
+	private static void appendJson(StringBuilder sb, String name, long value) {
+		sb.append('"').append(name).append("\":").append(value).append(',');
+	}
+
+	private static void appendJson(StringBuilder sb, String name, double value) {
+		sb.append('"').append(name).append("\":").append(String.format(Locale.US, "%.4f", value)).append(',');
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.US,
+				"Positions         = %d (%d quiescence), %d nps, branching factor %.2f\n" +
+						"PV Cut            = %d %.0f%%\n" +
+						"Null Cut          = %d %.0f%%\n" +
+						"First Move Cut    = %.0f%%\n" +
+						"TT           Hits = %.0f%% (%.0f%% cutoffs)\n" +
+						"TT Eval      Hits = %.0f%%\n" +
+						"Asp Win      Hits = %.0f%%\n" +
+						"Futility     Hits = %d\n" +
+						"Null Move    Hits = %.0f%%\n" +
+						"Razoring     Hits = %.0f%%\n" +
+						"S.Extensions Hits = %.0f%%\n" +
+						"SEE Cache    Hits = %.0f%%",
+				nodes, qNodes, getNps(), getBranchingFactor(),
+				pvCutNodes, 100 * getPvCutRate(),
+				nullCutNodes, 100 * getNullCutRate(),
+				100 * getFirstMoveCutRate(),
+				100 * getTtHitRate(), 100 * getTtCutoffRate(),
+				100 * getTtEvalHitRate(),
+				100 * getAspirationWindowHitRate(),
+				futilityHits,
+				100 * getNullMoveHitRate(),
+				100 * getRazoringHitRate(),
+				100 * getSingularExtensionHitRate(),
+				100 * getAttackersToHitRate());
+	}
+}
@@ -251,6 +251,10 @@ public class SearchStatusInfo {
 			sb.append(" seldepth ");
 			sb.append(selDepth);
 		}
+		if (multiPv != 0) {
+			sb.append(" multipv ");
+			sb.append(multiPv);
+		}
 		if (isMate()) {
 			sb.append(" score mate ");
 			sb.append(getMateIn());
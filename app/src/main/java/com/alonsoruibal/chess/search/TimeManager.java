@@ -0,0 +1,186 @@
+package com.alonsoruibal.chess.search;
+
+import com.alonsoruibal.chess.Move;
+import com.alonsoruibal.chess.log.Logger;
+
+/**
+ * Decides how long the engine thinks.
+ * Under time control there is a soft deadline, checked after each iteration, and a hard one, that aborts the search.
+ * The soft deadline starts at a share of the remaining time and after each iteration it is scaled by the stability
+ * of the search: it is cut when the best move and the score do not change, and extended when the best move changes,
+ * the score oscillates or drops. The hard deadline limits the overrun of the last iteration.
+ * The search checks the hard deadline every CHECK_NODES nodes.
+ */
+public class TimeManager {
+	private static final Logger logger = Logger.getLogger("TimeManager");
+
+	public static final int CHECK_NODES = 256;
+
+	private static final long NANOS_PER_MS = 1000000;
+	// Share of the remaining time for a move without movesToGo, and the maximum share of the remaining time
+	private static final int MOVES_TO_GO_DEFAULT = 25;
+	private static final int MAX_TIME_DIVISOR = 8;
+	// The soft time is multiplied by a factor in [STABLE_FACTOR..MAX_FACTOR]
+	private static final float STABLE_FACTOR = 0.6f;
+	private static final float MAX_FACTOR = 4f;
+	private static final float INSTABILITY_FACTOR = 0.5f;
+	private static final float VOLATILITY_FACTOR = 0.6f; // When the score oscillates VOLATILITY_MAX
+	private static final int VOLATILITY_MAX = 150;
+	private static final float SCORE_DROP_FACTOR = 1f; // For each SCORE_DROP centipawns lost
+	private static final int SCORE_DROP = 100;
+	private static final int SCORE_DROP_MAX = 250;
+	// Depth where the stability starts to count, the first iterations are too shallow
+	private static final int STABILITY_MIN_DEPTH = 5;
+	// The next iteration is estimated to cost the last one by the branching factor, within these limits
+	private static final float BRANCHING_FACTOR_MIN = 1.5f;
+	private static final float BRANCHING_FACTOR_MAX = 4f;
+
+	/**
+	 * Source of the time in nanoseconds, the tests replace System.nanoTime with a fake one
+	 */
+	interface Clock {
+		long nanoTime();
+	}
+
+	static final Clock SYSTEM_CLOCK = new Clock() {
+		@Override
+		public long nanoTime() {
+			return System.nanoTime();
+		}
+	};
+
+	private final Clock clock;
+	private boolean managed;
+	private long startNanos;
+	private long baseNanos;
+	private long maxNanos;
+	private volatile long softDeadline;
+	private volatile long hardDeadline;
+	private volatile boolean stopped;
+	private long nextCheckNodes;
+
+	private int lastBestMove;
+	private int lastScore;
+	private float bestMoveInstability;
+	private float scoreVolatility;
+	private long lastIterationNanos;
+	private long previousIterationNanos;
+
+	public TimeManager() {
+		this(SYSTEM_CLOCK);
+	}
+
+	TimeManager(Clock clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * Starts the timing of a new search, update() must be called after it to set the deadlines
+	 */
+	public void start() {
+		startNanos = clock.nanoTime();
+		stopped = false;
+		nextCheckNodes = CHECK_NODES;
+		lastBestMove = Move.NONE;
+		lastScore = 0;
+		bestMoveInstability = 0;
+		scoreVolatility = 0;
+		lastIterationNanos = 0;
+		previousIterationNanos = 0;
+	}
+
+	/**
+	 * Recalculates the deadlines with new parameters, keeping the start time, i.e. on a ponder hit
+	 */
+	public void update(SearchParameters searchParameters, boolean engineIsWhite) {
+		managed = false;
+		if (searchParameters.isPonder() || searchParameters.isInfinite()
+				|| searchParameters.getDepth() < Integer.MAX_VALUE || searchParameters.getNodes() < Integer.MAX_VALUE) {
+			setDeadlines(Long.MAX_VALUE, Long.MAX_VALUE);
+			return;
+		}
+		if (searchParameters.getMoveTime() != Integer.MAX_VALUE) {
+			long deadline = startNanos + searchParameters.getMoveTime() * NANOS_PER_MS;
+			setDeadlines(deadline, deadline);
+			return;
+		}
+		managed = true;
+
+		int timeAvailable = engineIsWhite ? searchParameters.getWtime() : searchParameters.getBtime();
+		int timeInc = engineIsWhite ? searchParameters.getWinc() : searchParameters.getBinc();
+		int movesToGo = searchParameters.getMovesToGo() > 0 ? Math.min(searchParameters.getMovesToGo(), MOVES_TO_GO_DEFAULT) : MOVES_TO_GO_DEFAULT;
+		long maxTime = Math.max(timeAvailable, 0) / MAX_TIME_DIVISOR;
+
+		baseNanos = (Math.min(Math.max(timeAvailable, 0) / movesToGo, maxTime) + timeInc) * NANOS_PER_MS;
+		maxNanos = (maxTime + timeInc) * NANOS_PER_MS;
+		logger.debug("Thinking for " + baseNanos / NANOS_PER_MS + "Ms");
+		scaleDeadlines(0);
+	}
+
+	/**
+	 * Updates the stability with a completed iteration, and decides if the search must stop before the next one
+	 *
+	 * @return true if the next iteration would not finish before the soft deadline
+	 */
+	public boolean iterationCompleted(int depth, int bestMove, int score, long iterationNanos) {
+		if (depth >= STABILITY_MIN_DEPTH) {
+			bestMoveInstability = bestMoveInstability / 2 + (bestMove != lastBestMove ? 1 : 0);
+			scoreVolatility = scoreVolatility / 2 + Math.abs(score - lastScore);
+		}
+		int scoreDrop = depth >= STABILITY_MIN_DEPTH ? lastScore - score : 0;
+		lastBestMove = bestMove;
+		lastScore = score;
+		previousIterationNanos = lastIterationNanos;
+		lastIterationNanos = iterationNanos;
+
+		if (!managed) {
+			return false;
+		}
+		scaleDeadlines(scoreDrop);
+
+		float branchingFactor = previousIterationNanos > 0 ? (float) lastIterationNanos / previousIterationNanos : 2f;
+		branchingFactor = Math.max(BRANCHING_FACTOR_MIN, Math.min(BRANCHING_FACTOR_MAX, branchingFactor));
+		return clock.nanoTime() + (long) (lastIterationNanos * branchingFactor) > softDeadline;
+	}
+
+	private void scaleDeadlines(int scoreDrop) {
+		float factor = STABLE_FACTOR
+				+ INSTABILITY_FACTOR * bestMoveInstability
+				+ VOLATILITY_FACTOR * Math.min(scoreVolatility, VOLATILITY_MAX) / VOLATILITY_MAX
+				+ SCORE_DROP_FACTOR * Math.max(0, Math.min(scoreDrop, SCORE_DROP_MAX)) / SCORE_DROP;
+		long softNanos = Math.min((long) (baseNanos * Math.min(factor, MAX_FACTOR)), maxNanos);
+		setDeadlines(startNanos + softNanos, startNanos + Math.min(softNanos << 1, maxNanos));
+	}
+
+	private void setDeadlines(long soft, long hard) {
+		softDeadline = soft;
+		hardDeadline = hard;
+	}
+
+	/**
+	 * Called by the search in each node, it only reads the clock every CHECK_NODES nodes
+	 */
+	public boolean isHardDeadlineReached(long nodeCount) {
+		if (nodeCount < nextCheckNodes) {
+			return false;
+		}
+		nextCheckNodes = nodeCount + CHECK_NODES;
+		return stopped || clock.nanoTime() > hardDeadline;
+	}
+
+	/**
+	 * Stops the search at the next check, from any thread
+	 */
+	public void stop() {
+		stopped = true;
+		hardDeadline = 0;
+		softDeadline = 0;
+	}
+
+	/**
+	 * If the time is managed by this class (not infinite, fixed time, depth or nodes)
+	 */
+	public boolean isManaged() {
+		return managed;
+	}
+}
@@ -13,6 +13,9 @@ import java.util.Arrays;
  * Transposition table using two keys and multiprobe
  * <p/>
  * Uses part of the board's zobrist key (shifted) as the index
+ * <p/>
+ * It can be shared by several search threads, each one with its own view (see newView): the entries are stored
+ * with the key xored with the info and the eval, so an entry half written by other thread does not verify and it is ignored
  *
  * @author rui
  */
@@ -29,10 +32,12 @@ public class TranspositionTable {
 
 	private static final int MAX_PROBES = 4;
 
-	public long[] keys;
+	public long[] keys; // key2 ^ info ^ eval
 	public long[] infos;
 	public short[] evals;
 
+	// Holds the generation and the occupied entries: this table, or the table the view was created from
+	private final TranspositionTable owner;
 	private int size;
 	private long info;
 	private short eval;
@@ -43,6 +48,7 @@ public class TranspositionTable {
 	private int sizeBits;
 
 	public TranspositionTable(int sizeMb) {
+		owner = this;
 		sizeBits = BitboardUtils.square2Index(sizeMb) + 16;
 		size = 1 << sizeBits;
 		keys = new long[size];
@@ -54,9 +60,28 @@ public class TranspositionTable {
 		logger.debug("Created transposition table, size = " + size + " slots " + size * 18.0 / (1024 * 1024) + " MBytes");
 	}
 
+	private TranspositionTable(TranspositionTable owner) {
+		this.owner = owner;
+		sizeBits = owner.sizeBits;
+		size = owner.size;
+		keys = owner.keys;
+		infos = owner.infos;
+		evals = owner.evals;
+	}
+
+	/**
+	 * Returns a table sharing the entries and the generation with this one, but with its own probe results,
+	 * to be used from another search thread
+	 */
+	public TranspositionTable newView() {
+		return new TranspositionTable(owner);
+	}
+
 	public void clear() {
-		entriesOccupied = 0;
+		owner.entriesOccupied = 0;
 		Arrays.fill(keys, 0);
+		Arrays.fill(infos, 0);
+		Arrays.fill(evals, (short) 0);
 	}
 
 	public boolean search(Board board, int distanceToInitialPly, boolean exclusion) {
@@ -64,10 +89,13 @@ public class TranspositionTable {
 		score = 0;
 		int startIndex = (int) ((exclusion ? board.getExclusionKey() : board.getKey()) >>> (64 - sizeBits));
 		// Verifies that it is really this board
+		long key2 = board.getKey2();
 		for (int i = startIndex; i < startIndex + MAX_PROBES && i < size; i++) {
-			if (keys[i] == board.getKey2()) {
-				info = infos[i];
-				eval = evals[i];
+			long entryInfo = infos[i];
+			short entryEval = evals[i];
+			if ((keys[i] ^ entryInfo ^ entryEval) == key2) {
+				info = entryInfo;
+				eval = entryEval;
 				score = (short) ((info >>> 48) & 0xffff);
 
 				// Fix mate score with the real distance to the initial PLY
@@ -108,11 +136,11 @@ public class TranspositionTable {
 	}
 
 	public void newGeneration() {
-		generation = (generation + 1) & 0xff;
+		owner.generation = (owner.generation + 1) & 0xff;
 	}
 
 	public boolean isMyGeneration() {
-		return getGeneration() == generation;
+		return getGeneration() == owner.generation;
 	}
 
 	public void set(Board board, int nodeType, int distanceToInitialPly, int depthAnalyzed, int bestMove, int score, int eval, boolean exclusion) {
@@ -133,12 +161,13 @@ public class TranspositionTable {
 
 		for (int i = startIndex; i < startIndex + MAX_PROBES && i < size; i++) {
 			info = infos[i];
+			long entryKey = keys[i] ^ info ^ evals[i];
 
-			if (keys[i] == 0) { // Replace an empty TT position
-				entriesOccupied++;
+			if (entryKey == 0 && info == 0) { // Replace an empty TT position
+				owner.entriesOccupied++; // Approximate with several threads
 				replaceIndex = i;
 				break;
-			} else if (keys[i] == key2) { // Replace the same position
+			} else if (entryKey == key2) { // Replace the same position
 				replaceIndex = i;
 				if (bestMove == Move.NONE) { // Keep previous best move
 					bestMove = getBestMove();
@@ -158,10 +187,10 @@ public class TranspositionTable {
 			}
 		}
 
-		keys[replaceIndex] = key2;
-		info = (bestMove & 0x1fffff) | ((nodeType & 0xf) << 21) | (((long) (generation & 0xff)) << 32) | (((long) (depthAnalyzed & 0xff)) << 40)
+		info = (bestMove & 0x1fffff) | ((nodeType & 0xf) << 21) | (((long) (owner.generation & 0xff)) << 32) | (((long) (depthAnalyzed & 0xff)) << 40)
 				| (((long) (score & 0xffff)) << 48);
 
+		keys[replaceIndex] = key2 ^ info ^ (short) eval;
 		infos[replaceIndex] = info;
 		evals[replaceIndex] = (short) eval;
 	}
@@ -171,10 +200,11 @@ public class TranspositionTable {
 	 */
 	private int getGenerationDelta() {
 		byte entryGeneration = (byte) ((info >>> 32) & 0xff);
+		int generation = owner.generation;
 		return (generation >= entryGeneration ? generation - entryGeneration : 256 + generation - entryGeneration);
 	}
 
 	public int getHashFull() {
-		return (int) (1000L * entriesOccupied / size);
+		return (int) (1000L * owner.entriesOccupied / size);
 	}
 }
\ No newline at end of file
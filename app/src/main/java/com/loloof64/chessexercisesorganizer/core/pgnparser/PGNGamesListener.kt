@@ -1,6 +1,9 @@
 package com.loloof64.chessexercisesorganizer.core.pgnparser
 
+import android.os.Parcel
 import android.os.Parcelable
+import com.alonsoruibal.chess.SanLineValidator
+import kotlinx.parcelize.Parceler
 import kotlinx.parcelize.Parcelize
 
 @Parcelize
@@ -11,15 +14,79 @@ enum class GameTermination : Parcelable {
     NotKnown,
 }
 
+/**
+ * The move is kept as its SanTable id, so the many identical tokens of a big file share one string.
+ */
 @Parcelize
 data class PGNNode(
-    var moveValue: String,
+    var moveId: Int,
     var whiteMove: Boolean,
     var moveNumber: Int,
     var nextNode: PGNNode? = null,
     val variations: MutableList<PGNNode> = mutableListOf(),
     var gameTermination: GameTermination? = null
-) : Parcelable
+) : Parcelable {
+    var moveValue: String
+        get() = SanTable.san(moveId)
+        set(value) {
+            moveId = SanTable.intern(value)
+        }
+
+    val moveFan: String
+        get() = SanTable.fan(moveId, forBlackTurn = !whiteMove)
+
+    // Ids are only valid in this process, so the SAN itself is parcelled
+    private companion object : Parceler<PGNNode> {
+        override fun PGNNode.write(parcel: Parcel, flags: Int) {
+            parcel.writeString(moveValue)
+            parcel.writeInt(if (whiteMove) 1 else 0)
+            parcel.writeInt(moveNumber)
+            parcel.writeParcelable(nextNode, flags)
+            parcel.writeList(variations)
+            parcel.writeInt(gameTermination?.ordinal ?: -1)
+        }
+
+        override fun create(parcel: Parcel): PGNNode {
+            val moveId = SanTable.intern(parcel.readString()!!)
+            val whiteMove = parcel.readInt() == 1
+            val moveNumber = parcel.readInt()
+            val nextNode = parcel.readParcelable<PGNNode>(PGNNode::class.java.classLoader)
+            val variations = mutableListOf<PGNNode>()
+            parcel.readList(variations, PGNNode::class.java.classLoader)
+            val terminationOrdinal = parcel.readInt()
+            return PGNNode(
+                moveId = moveId,
+                whiteMove = whiteMove,
+                moveNumber = moveNumber,
+                nextNode = nextNode,
+                variations = variations,
+                gameTermination = if (terminationOrdinal < 0) null else GameTermination.values()[terminationOrdinal],
+            )
+        }
+    }
+}
+
+/**
+ * The moves from this node as SAN tokens, with variations between SanLineValidator markers.
+ */
+fun PGNNode.toSanTokens(): List<String> {
+    val tokens = mutableListOf<String>()
+    addSanTokens(this, tokens)
+    return tokens
+}
+
+private fun addSanTokens(firstNode: PGNNode, tokens: MutableList<String>) {
+    var node: PGNNode? = firstNode
+    while (node != null) {
+        tokens.add(node.moveValue)
+        node.variations.forEach {
+            tokens.add(SanLineValidator.VARIATION_START)
+            addSanTokens(it, tokens)
+            tokens.add(SanLineValidator.VARIATION_END)
+        }
+        node = node.nextNode
+    }
+}
 
 @Parcelize
 data class PGNGame(val tags: MutableMap<String, String>, val moves: PGNNode?) : Parcelable
@@ -136,7 +203,7 @@ class PGNGamesListener : PGNBaseListener() {
 
         val moveSanText = ctx.SYMBOL().text
         val newNode = PGNNode(
-            moveValue = moveSanText,
+            moveId = SanTable.intern(moveSanText),
             whiteMove = whiteTurnStack[variationDepth],
             moveNumber =  moveNumberStack[variationDepth],
         )
@@ -0,0 +1,59 @@
+package com.loloof64.chessexercisesorganizer.core.pgnparser
+
+/**
+ * Global table of the SAN tokens of the parsed games: each distinct token is stored once,
+ * with its figurine renderings for both colours, and the parsed tree only keeps its id.
+ * Ids are only valid in the current process.
+ */
+object SanTable {
+    private val ids = HashMap<String, Int>()
+    private var sans = arrayOfNulls<String>(INITIAL_CAPACITY)
+    private var whiteFans = arrayOfNulls<String>(INITIAL_CAPACITY)
+    private var blackFans = arrayOfNulls<String>(INITIAL_CAPACITY)
+    private var size = 0
+
+    @Synchronized
+    fun intern(san: String): Int {
+        ids[san]?.let { return it }
+        if (size == sans.size) {
+            sans = sans.copyOf(size * 2)
+            whiteFans = whiteFans.copyOf(size * 2)
+            blackFans = blackFans.copyOf(size * 2)
+        }
+        val id = size++
+        sans[id] = san
+        whiteFans[id] = san.toFAN(forBlackTurn = false)
+        blackFans[id] = san.toFAN(forBlackTurn = true)
+        ids[san] = id
+        return id
+    }
+
+    @Synchronized
+    fun san(id: Int): String = sans[id]!!
+
+    @Synchronized
+    fun fan(id: Int, forBlackTurn: Boolean): String =
+        (if (forBlackTurn) blackFans[id] else whiteFans[id])!!
+
+    @Synchronized
+    fun size(): Int = size
+
+    private const val INITIAL_CAPACITY = 256
+}
+
+/**
+ * Renders the piece letter of a SAN move with its chess figurine, i.e. Nf3 to ♘f3.
+ */
+fun String.toFAN(forBlackTurn: Boolean): String {
+    val pieceIndex = indexOfFirst { it in "NBRQK" }
+    if (pieceIndex < 0) return this
+    val replacement = when (val element = this[pieceIndex]) {
+        'N' -> if (forBlackTurn) "\u265e" else "\u2658"
+        'B' -> if (forBlackTurn) "\u265d" else "\u2657"
+        'R' -> if (forBlackTurn) "\u265c" else "\u2656"
+        'Q' -> if (forBlackTurn) "\u265b" else "\u2655"
+        'K' -> if (forBlackTurn) "\u265a" else "\u2654"
+        else -> throw java.lang.RuntimeException("Unrecognized piece char $element into SAN $this")
+    }
+    return substring(0, pieceIndex) + replacement + substring(pieceIndex + 1)
+}
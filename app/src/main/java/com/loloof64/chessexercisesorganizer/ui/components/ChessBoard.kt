@@ -37,8 +37,11 @@ import androidx.compose.ui.tooling.preview.Preview
 import androidx.compose.ui.unit.dp
 import androidx.vectordrawable.graphics.drawable.VectorDrawableCompat
 import com.alonsoruibal.chess.Board
+import com.alonsoruibal.chess.BoardPool
 import com.alonsoruibal.chess.Move
+import com.alonsoruibal.chess.Position
 import com.loloof64.chessexercisesorganizer.R
+import com.loloof64.chessexercisesorganizer.core.pgnparser.toFAN
 import kotlinx.coroutines.delay
 import kotlinx.coroutines.launch
 import kotlin.math.*
@@ -53,33 +56,18 @@ fun String.toBoard(): Board {
     }
 }
 
-fun String.toFAN(forBlackTurn: Boolean): String {
-    var result = this
-    val referenceChars = "NBRQK".toCharArray()
-
-    var firstOccurrenceIndex = -1
-    for (i in 0.until(result.length)) {
-        val currentElement = this.toCharArray()[i]
-        if (referenceChars.contains(currentElement)) {
-            firstOccurrenceIndex = i
-            break
-        }
-    }
-    if (firstOccurrenceIndex > -1) {
-        val replacement = when (val element = this.toCharArray()[firstOccurrenceIndex]) {
-            'N' -> if (forBlackTurn) "\u265e" else "\u2658"
-            'B' -> if (forBlackTurn) "\u265d" else "\u2657"
-            'R' -> if (forBlackTurn) "\u265c" else "\u2656"
-            'Q' -> if (forBlackTurn) "\u265b" else "\u2655"
-            'K' -> if (forBlackTurn) "\u265a" else "\u2654"
-            else -> throw java.lang.RuntimeException("Unrecognized piece char $element into SAN $this")
-        }
-        val firstPart = this.substring(0, firstOccurrenceIndex)
-        val lastPart = this.substring(firstOccurrenceIndex + 1)
-
-        result = "$firstPart$replacement$lastPart"
+/**
+ * Runs block with a board of the current thread pool set to this fen.
+ * The board must not escape the block, use toBoard() when the board must be kept.
+ */
+inline fun <T> String.withPooledBoard(block: (Board) -> T): T {
+    val pool = BoardPool.get()
+    val board = pool.acquire(this)
+    try {
+        return block(board)
+    } finally {
+        pool.release(board)
     }
-    return result
 }
 
 enum class GameEndedStatus {
@@ -106,6 +94,10 @@ class DynamicBoardDataHandler {
         boardLogic.fen = position
     }
 
+    fun setCurrentPosition(position: Position) {
+        boardLogic.restore(position)
+    }
+
     fun setLastMoveArrow(arrowData: MoveData?) {
         this.arrowData = arrowData
     }
@@ -122,9 +114,10 @@ class DynamicBoardDataHandler {
 
     fun getCurrentPosition(): String = boardLogic.fen ?: EMPTY_FEN
 
+    fun getCurrentSnapshot(): Position = boardLogic.snapshot()
+
     fun newGame(startFen: String) {
-        val positionValidator = startFen.toBoard()
-        val isLegalPosition = positionValidator.checkValidityCompletely()
+        val isLegalPosition = startFen.withPooledBoard { it.checkValidityCompletely() }
         if (!isLegalPosition) throw IllegalPositionException(startFen)
         startPosition = startFen
         boardLogic = startPosition.toBoard()
@@ -142,19 +135,20 @@ class DynamicBoardDataHandler {
         return lastMoveSan.toFAN(forBlackTurn = forBlackTurn)
     }
 
-    fun isValidMove(moveStr: String): Boolean {
-        val boardCopy = boardLogic.fen?.toBoard()
-        val move = Move.getFromString(boardCopy, moveStr, true)
-        return boardCopy?.doMove(move, true, true) ?: false
-    }
+    /**
+     * Bitboard of the legal destinations of the piece on this cell (file and rank from 0 to 7)
+     */
+    fun legalTargetsFrom(file: Int, rank: Int): Long =
+        boardLogic.legalTargetsFrom(getSquareIndexFromCellCoordinates(file, rank))
 
     fun getNaturalGameEndedStatus(): GameEndedStatus {
-        return when {
-            boardLogic.isMate -> if (boardLogic.turn) GameEndedStatus.CHECKMATE_BLACK else GameEndedStatus.CHECKMATE_WHITE
-            boardLogic.isStalemate -> GameEndedStatus.STALEMATE
-            boardLogic.isDrawByThreeFoldRepetitions -> GameEndedStatus.DRAW_THREE_FOLD_REPETITION
-            boardLogic.isDrawByFiftyMovesRule -> GameEndedStatus.DRAW_FIFTY_MOVES_RULE
-            boardLogic.isDrawByMissingMaterial -> GameEndedStatus.DRAW_MISSING_MATERIAL
+        return when (boardLogic.gameStatus) {
+            Board.GAME_STATUS_CHECKMATE_WHITE -> GameEndedStatus.CHECKMATE_WHITE
+            Board.GAME_STATUS_CHECKMATE_BLACK -> GameEndedStatus.CHECKMATE_BLACK
+            Board.GAME_STATUS_STALEMATE -> GameEndedStatus.STALEMATE
+            Board.GAME_STATUS_DRAW_THREE_FOLD_REPETITION -> GameEndedStatus.DRAW_THREE_FOLD_REPETITION
+            Board.GAME_STATUS_DRAW_FIFTY_MOVES_RULE -> GameEndedStatus.DRAW_FIFTY_MOVES_RULE
+            Board.GAME_STATUS_DRAW_MISSING_MATERIAL -> GameEndedStatus.DRAW_MISSING_MATERIAL
             else -> GameEndedStatus.NOT_ENDED
         }
     }
@@ -408,7 +402,7 @@ fun DynamicChessBoard(
     reversed: Boolean = false,
     lastMoveArrow: MoveData? = null,
     promotionState: PendingPromotionData = PendingPromotionData(),
-    isValidMoveCallback: (String) -> Boolean = { _ -> false },
+    legalTargetsCallback: (Int, Int) -> Long = { _, _ -> 0L },
     dndMoveCallback: (MoveData) -> Unit = { _ -> },
     setPendingPromotionCallback: (PendingPromotionData) -> Unit = { _ -> },
     cancelPendingPromotionCallback: () -> Unit = { },
@@ -428,10 +422,13 @@ fun DynamicChessBoard(
 
     var cellsSize by remember { mutableStateOf(0f) }
 
+    // Legal destinations of the dragged piece, computed once at drag start
+    var dndLegalTargets by remember(position) { mutableStateOf(0L) }
+
     fun isComputerTurn(): Boolean {
-        val boardState = position.toBoard()
-        return (boardState.turn && whiteSideType == PlayerType.Computer)
-                || (!boardState.turn && blackSideType == PlayerType.Computer)
+        val whiteTurn = position.withPooledBoard { it.turn }
+        return (whiteTurn && whiteSideType == PlayerType.Computer)
+                || (!whiteTurn && blackSideType == PlayerType.Computer)
     }
 
     fun makeComputerMoveRequestIfAppropriate() {
@@ -618,7 +615,7 @@ fun DynamicChessBoard(
         if (!gameInProgress) return
         if (promotionState.pendingPromotion) return
 
-        val whiteTurn = position.toBoard().turn
+        val whiteTurn = position.withPooledBoard { it.turn }
         val isPieceOfSideToMove =
             (piece.isWhitePiece() && whiteTurn) ||
                     (!piece.isWhitePiece() && !whiteTurn)
@@ -639,6 +636,7 @@ fun DynamicChessBoard(
                 movedPieceYRatio = newMovedPieceYRatio,
                 pieceValue = piece
             )
+            dndLegalTargets = legalTargetsCallback(file, rank)
         }
     }
 
@@ -653,13 +651,11 @@ fun DynamicChessBoard(
         if (dndState.startFile < 0 || dndState.startFile > 7) return false
         if (dndState.startRank < 0 || dndState.startRank > 7) return false
         if (dndState.targetFile < 0 || dndState.targetFile > 7) return false
-        if (dndState.targetFile < 0 || dndState.targetFile > 7) return false
+        if (dndState.targetRank < 0 || dndState.targetRank > 7) return false
 
-        val promotionChar = if (dndMoveIsPromotion()) "Q" else ""
-        val moveString =
-            "${dndState.startFile.asFileChar()}${dndState.startRank.asRankChar()}" +
-                    "${dndState.targetFile.asFileChar()}${dndState.targetRank.asRankChar()}$promotionChar"
-        return isValidMoveCallback(moveString)
+        val legalTargets = legalTargetsCallback(dndState.startFile, dndState.startRank)
+        val targetSquare = getSquareFromCellCoordinates(dndState.targetFile, dndState.targetRank)
+        return (legalTargets and targetSquare) != 0L
     }
 
     fun commitDndMove() {
@@ -690,7 +686,7 @@ fun DynamicChessBoard(
             val file = if (reversed) 7 - col else col
             val rank = if (reversed) row else 7 - row
             val square = getSquareFromCellCoordinates(file, rank)
-            val piece = position.toBoard().getPieceAt(square)
+            val piece = position.withPooledBoard { it.getPieceAt(square) }
 
             if (piece != NO_PIECE) {
                 processDragAndDropStart(file, rank, piece)
@@ -739,7 +735,7 @@ fun DynamicChessBoard(
                 setPendingPromotionCallback(
                     promotionState.copy(
                         pendingPromotion = true,
-                        pendingPromotionForBlack = !position.toBoard().turn,
+                        pendingPromotionForBlack = !position.withPooledBoard { it.turn },
                         pendingPromotionStartedInReversedMode = reversed,
                         pieceValue = dndState.pieceValue,
                         startFile = dndState.startFile,
@@ -784,7 +780,12 @@ fun DynamicChessBoard(
     ) {
         val minSize = if (size.width < size.height) size.width else size.height
         cellsSize = minSize / 9f
-        drawCells(cellsSize = cellsSize, reversed = reversed, dndData = dndState)
+        drawCells(
+            cellsSize = cellsSize,
+            reversed = reversed,
+            dndData = dndState,
+            legalTargets = if (dndState.pieceValue != NO_PIECE) dndLegalTargets else 0L,
+        )
         drawPendingPromotionCells(
             cellsSize = cellsSize,
             reversed = reversed,
@@ -792,15 +793,17 @@ fun DynamicChessBoard(
         )
         drawFilesCoordinates(cellsSize, reversed)
         drawRanksCoordinates(cellsSize, reversed)
-        drawPlayerTurn(cellsSize, position.toBoard())
-        drawPieces(
-            context = currentContext,
-            cellsSize = cellsSize,
-            position = position.toBoard(),
-            reversed = reversed,
-            dndData = dndState,
-            promotionData = promotionState,
-        )
+        position.withPooledBoard { boardLogic ->
+            drawPlayerTurn(cellsSize, boardLogic)
+            drawPieces(
+                context = currentContext,
+                cellsSize = cellsSize,
+                position = boardLogic,
+                reversed = reversed,
+                dndData = dndState,
+                promotionData = promotionState,
+            )
+        }
         drawLastMoveArrow(lastMoveArrow, cellsSize, reversed)
 
         if (dndState.pieceValue != NO_PIECE) {
@@ -851,7 +854,7 @@ fun DynamicChessBoard(
                 x = itemsZoneX,
                 y = itemsZoneY,
                 itemsSize = itemsSize,
-                isWhiteTurn = position.toBoard().turn,
+                isWhiteTurn = position.withPooledBoard { it.turn },
                 spaceBetweenItems = spaceBetweenItems,
             )
         }
@@ -989,14 +992,19 @@ private val DndDataStateSaver = Saver<DndData, String>(
     }
 )
 
+fun getSquareIndexFromCellCoordinates(file: Int, rank: Int): Int {
+    return 7 - file + 8 * rank
+}
+
 private fun getSquareFromCellCoordinates(file: Int, rank: Int): Long {
-    return 1L.shl(7 - file + 8 * rank)
+    return 1L.shl(getSquareIndexFromCellCoordinates(file, rank))
 }
 
 private fun DrawScope.drawCells(
     cellsSize: Float,
     reversed: Boolean = false,
-    dndData: DndData = DndData()
+    dndData: DndData = DndData(),
+    legalTargets: Long = 0L,
 ) {
     repeat(8) { row ->
         val rank = if (reversed) row else 7 - row
@@ -1005,12 +1013,14 @@ private fun DrawScope.drawCells(
             val isDndStartCell = (file == dndData.startFile) && (rank == dndData.startRank)
             val isDndTargetCell = (file == dndData.targetFile) && (rank == dndData.targetRank)
             val isDndCrossCell = (file == dndData.targetFile) || (rank == dndData.targetRank)
+            val isLegalTargetCell = (legalTargets and getSquareFromCellCoordinates(file, rank)) != 0L
             val isWhiteCell = (row + col) % 2 == 0
             val backgroundColor =
                 when {
                     isDndTargetCell -> Color(112, 209, 35)
                     isDndStartCell -> Color(255, 87, 34, 255)
                     isDndCrossCell -> Color(178, 46, 230)
+                    isLegalTargetCell -> if (isWhiteCell) Color(205, 226, 137) else Color(170, 186, 74)
                     isWhiteCell -> Color(255, 206, 158)
                     else -> Color(209, 139, 71)
                 }
@@ -22,6 +22,7 @@ import androidx.compose.ui.text.style.TextAlign
 import androidx.compose.ui.tooling.preview.Preview
 import androidx.compose.ui.unit.dp
 import androidx.compose.ui.unit.sp
+import com.alonsoruibal.chess.Position
 import com.google.accompanist.flowlayout.FlowRow
 import com.loloof64.chessexercisesorganizer.R
 import com.loloof64.chessexercisesorganizer.ui.components.MoveData
@@ -30,8 +31,9 @@ class MoveNumber(text: String) : MovesNavigatorElement(text)
 
 data class HalfMoveSAN(
     override val text: String, override val fen: String? = null,
-    override val lastMoveArrowData: MoveData? = null
-) : MovesNavigatorElement(text, fen, lastMoveArrowData)
+    override val lastMoveArrowData: MoveData? = null,
+    override val position: Position? = null,
+) : MovesNavigatorElement(text, fen, lastMoveArrowData, position)
 
 @Composable
 fun MovesNavigatorButtons(
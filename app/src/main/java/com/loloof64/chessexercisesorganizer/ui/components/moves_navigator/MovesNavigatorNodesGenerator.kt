@@ -1,20 +1,22 @@
 package com.loloof64.chessexercisesorganizer.ui.components.moves_navigator
 
 import com.alonsoruibal.chess.Board
+import com.alonsoruibal.chess.BoardPool
 import com.alonsoruibal.chess.Move
+import com.alonsoruibal.chess.Position
 import com.alonsoruibal.chess.bitboard.BitboardUtils
 import com.loloof64.chessexercisesorganizer.core.pgnparser.GameTermination
 import com.loloof64.chessexercisesorganizer.core.pgnparser.PGNGame
 import com.loloof64.chessexercisesorganizer.core.pgnparser.PGNNode
 import com.loloof64.chessexercisesorganizer.ui.components.MoveData
 import com.loloof64.chessexercisesorganizer.ui.components.toBoard
-import com.loloof64.chessexercisesorganizer.ui.components.toFAN
 import java.lang.RuntimeException
 
 sealed class MovesNavigatorElement(
     open val text: String,
     open val fen: String? = null,
-    open val lastMoveArrowData: MoveData? = null
+    open val lastMoveArrowData: MoveData? = null,
+    open val position: Position? = null,
 )
 
 class LeftParenthesis : MovesNavigatorElement(text = "(")
@@ -46,7 +48,7 @@ private fun recurBuildHistoryFromPGNTree(
     forceMoveNumberInsertion: Boolean = false,
     currentGameState: Board,
 ): MutableList<MovesNavigatorElement> {
-    val previousGameFen = currentGameState.fen
+    val previousPosition = currentGameState.snapshot()
     val elements = mutableListOf<MovesNavigatorElement>()
     if (tree.whiteMove || forceMoveNumberInsertion) {
         val moveNumberElement =
@@ -65,21 +67,28 @@ private fun recurBuildHistoryFromPGNTree(
     val newFen = currentGameState.fen
     val lastMoveCoordinates = MoveData.parse("$moveFromString$moveToString")
     val moveSanElement = HalfMoveSAN(
-        text = tree.moveValue.toFAN(forBlackTurn = !tree.whiteMove),
+        text = tree.moveFan,
         fen = newFen,
-        lastMoveArrowData = lastMoveCoordinates
+        lastMoveArrowData = lastMoveCoordinates,
+        position = currentGameState.snapshot(),
     )
     elements.add(moveSanElement)
 
     tree.variations.forEach {
         elements.add(LeftParenthesis())
-        elements.addAll(
-            recurBuildHistoryFromPGNTree(
-                tree = it,
-                forceMoveNumberInsertion = true,
-                currentGameState = previousGameFen.toBoard(),
+        val pool = BoardPool.get()
+        val variationGameState = pool.acquire(previousPosition)
+        try {
+            elements.addAll(
+                recurBuildHistoryFromPGNTree(
+                    tree = it,
+                    forceMoveNumberInsertion = true,
+                    currentGameState = variationGameState,
+                )
             )
-        )
+        } finally {
+            pool.release(variationGameState)
+        }
         elements.add(RightParenthesis())
     }
 
@@ -38,6 +38,7 @@ import com.google.accompanist.pager.HorizontalPager
 import com.google.accompanist.pager.rememberPagerState
 import com.google.android.material.datepicker.MaterialDatePicker
 import com.loloof64.chessexercisesorganizer.R
+import com.loloof64.chessexercisesorganizer.core.pgnparser.toFAN
 import com.loloof64.chessexercisesorganizer.ui.components.*
 import com.loloof64.chessexercisesorganizer.ui.components.moves_navigator.HalfMoveSAN
 import com.loloof64.chessexercisesorganizer.ui.components.moves_navigator.MoveNumber
@@ -1176,10 +1177,10 @@ fun SolutionEditor(
         }
     }
 
-    fun checkMoveValidity(moveAlgebraic: String): Boolean {
-        val moveValidityChecker = currentPosition.toBoard()
-        val move = Move.getFromString(moveValidityChecker, moveAlgebraic, true)
-        return moveValidityChecker.doMove(move)
+    fun legalTargetsFrom(file: Int, rank: Int): Long {
+        return currentPosition.withPooledBoard {
+            it.legalTargetsFrom(getSquareIndexFromCellCoordinates(file, rank))
+        }
     }
 
     if (isLandscape) {
@@ -1191,7 +1192,7 @@ fun SolutionEditor(
                     reversed = boardReversed,
                     modifier = Modifier.size(screenHeight * 0.65f),
                     gameInProgress = true,
-                    isValidMoveCallback = ::checkMoveValidity,
+                    legalTargetsCallback = ::legalTargetsFrom,
                     dndMoveCallback = { handleDndMoveCallback(it) },
                     promotionMoveCallback = { handlePromotionMoveCallback(it) },
                     promotionState = promotionState,
@@ -1214,7 +1215,7 @@ fun SolutionEditor(
                 reversed = boardReversed,
                 modifier = Modifier.size(screenWidth * 0.7f),
                 gameInProgress = true,
-                isValidMoveCallback = ::checkMoveValidity,
+                legalTargetsCallback = ::legalTargetsFrom,
                 dndMoveCallback = { handleDndMoveCallback(it) },
                 promotionMoveCallback = { handlePromotionMoveCallback(it) },
                 promotionState = promotionState,
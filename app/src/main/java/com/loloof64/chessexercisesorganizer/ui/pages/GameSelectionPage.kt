@@ -18,18 +18,17 @@ import androidx.compose.ui.text.style.TextAlign
 import androidx.compose.ui.unit.dp
 import androidx.compose.ui.unit.sp
 import androidx.navigation.NavController
-import com.alonsoruibal.chess.Move
+import com.alonsoruibal.chess.SanLineValidator
 import com.loloof64.chessexercisesorganizer.MyApplication
 import com.loloof64.chessexercisesorganizer.NavHostRoutes
 import com.loloof64.chessexercisesorganizer.R
 import com.loloof64.chessexercisesorganizer.core.pgnparser.PGNGame
+import com.loloof64.chessexercisesorganizer.core.pgnparser.toSanTokens
 import com.loloof64.chessexercisesorganizer.ui.components.STANDARD_FEN
 import com.loloof64.chessexercisesorganizer.ui.components.StaticChessBoard
-import com.loloof64.chessexercisesorganizer.ui.components.toBoard
+import com.loloof64.chessexercisesorganizer.ui.components.withPooledBoard
 import com.loloof64.chessexercisesorganizer.ui.theme.ChessExercisesOrganizerJetpackComposeTheme
 
-class IllegalMoveException : Exception()
-
 @Composable
 fun ValidationButtonIfAppropriate(mustBeShown: Boolean, handleGameSelected: () -> Unit) {
     val context = LocalContext.current
@@ -176,30 +175,13 @@ fun GameSelectionZone(
     }
 
     fun currentGameHasIllegalSolution(): Boolean {
-        val solutionRoot = games?.get(pageIndex)?.moves
-        if (solutionRoot == null) return false
-        else {
-            return try {
-                var currentNode = solutionRoot
-                val startPosition = getStartPosition()
-                val testGame = startPosition.toBoard()
-                do {
-                    val legalMove =
-                        testGame.doMove(Move.getFromString(testGame, currentNode?.moveValue, true))
-                    if (!legalMove) throw IllegalMoveException()
-                    currentNode = currentNode?.nextNode
-                } while (currentNode != null)
-                false
-            } catch (ex: IllegalMoveException) {
-                true
-            }
-        }
+        val solutionRoot = games?.get(pageIndex)?.moves ?: return false
+        return !SanLineValidator().validate(getStartPosition(), solutionRoot.toSanTokens()).isLegal
     }
 
     fun currentGameHasIllegalStartPosition(): Boolean {
         val startPosition = games?.get(pageIndex)?.tags?.get("FEN") ?: STANDARD_FEN
-        val testBoard = startPosition.toBoard()
-        return !testBoard.checkValidityCompletely()
+        return !startPosition.withPooledBoard { it.checkValidityCompletely() }
     }
 
     val isLandscape = when (LocalConfiguration.current.orientation) {
@@ -245,8 +245,8 @@ fun GamePage(
             gameInProgress = uiState.interfaceState.gameInProgress,
             position = uiState.chessState.boardPosition,
             promotionState = uiState.interfaceState.promotionState,
-            isValidMoveCallback = {
-                gamePageViewModel.isValidMove(it)
+            legalTargetsCallback = { file, rank ->
+                gamePageViewModel.legalTargetsFrom(file, rank)
             },
             dndMoveCallback = {
                 gamePageViewModel.handleStandardMoveDoneOnBoard(it)
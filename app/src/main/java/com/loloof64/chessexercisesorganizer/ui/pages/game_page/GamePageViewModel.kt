@@ -186,9 +186,12 @@ class GamePageViewModel : ViewModel() {
             else viewModelState.value.chessState.playedGameHistory[nodeIndex]
 
         val fen = currentNode.fen
+        val position = currentNode.position
         val lastMoveArrowData = currentNode.lastMoveArrowData
 
-        if (fen != null) {
+        if (position != null) {
+            viewModelState.value.chessState.board.setCurrentPosition(position)
+        } else if (fen != null) {
             viewModelState.value.chessState.board.setCurrentPosition(fen)
         }
         viewModelState.value.chessState.board.setLastMoveArrow(lastMoveArrowData)
@@ -479,6 +482,7 @@ class GamePageViewModel : ViewModel() {
     private fun addMoveFanToHistory() {
         val lastMoveFan = viewModelState.value.chessState.board.getLastMoveFan()
         val lastMoveFen = viewModelState.value.chessState.board.getCurrentPosition()
+        val lastMovePosition = viewModelState.value.chessState.board.getCurrentSnapshot()
         val localLastMoveArrow = viewModelState.value.chessState.board.getLastMoveArrow()
         val playedGameHistoryCopy =
             viewModelState.value.chessState.playedGameHistory.toMutableList()
@@ -486,7 +490,8 @@ class GamePageViewModel : ViewModel() {
             HalfMoveSAN(
                 text = lastMoveFan,
                 fen = lastMoveFen,
-                lastMoveArrowData = localLastMoveArrow
+                lastMoveArrowData = localLastMoveArrow,
+                position = lastMovePosition,
             )
         )
         if (viewModelState.value.chessState.board.whiteTurn()) {
@@ -646,7 +651,12 @@ class GamePageViewModel : ViewModel() {
         val currentNode =
             historyNodes[viewModelState.value.interfaceState.highlightedHistoryItemIndex!!]
 
-        viewModelState.value.chessState.board.setCurrentPosition(currentNode.fen!!)
+        val position = currentNode.position
+        if (position != null) {
+            viewModelState.value.chessState.board.setCurrentPosition(position)
+        } else {
+            viewModelState.value.chessState.board.setCurrentPosition(currentNode.fen!!)
+        }
         viewModelState.value.chessState.board.setLastMoveArrow(currentNode.lastMoveArrowData)
 
         viewModelState.update {
@@ -736,8 +746,8 @@ class GamePageViewModel : ViewModel() {
         }
     }
 
-    fun isValidMove(move: String): Boolean {
-        return viewModelState.value.chessState.board.isValidMove(move)
+    fun legalTargetsFrom(file: Int, rank: Int): Long {
+        return viewModelState.value.chessState.board.legalTargetsFrom(file, rank)
     }
 
     fun clearPromotionData() {
@@ -0,0 +1,89 @@
+package com.alonsoruibal.chess;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SanLineValidatorTest {
+	private static final String OPEN = SanLineValidator.VARIATION_START;
+	private static final String CLOSE = SanLineValidator.VARIATION_END;
+
+	private final SanLineValidator validator = new SanLineValidator();
+
+	private SanLineValidator.Result validate(String fen, String... tokens) {
+		return validator.validate(fen, Arrays.asList(tokens));
+	}
+
+	private static String fenAfter(String fen, String... moves) {
+		Board board = new Board();
+		board.setFen(fen);
+		for (String move : moves) {
+			assertTrue(move, board.doMove(Move.getFromString(board, move, true)));
+		}
+		return board.getFen();
+	}
+
+	private static void assertIllegal(SanLineValidator.Result result, int ply, int tokenIndex, String fen) {
+		assertFalse(result.isLegal());
+		assertEquals("ply", ply, result.illegalPly);
+		assertEquals("token index", tokenIndex, result.illegalTokenIndex);
+		assertEquals(fen, result.position.getFen());
+	}
+
+	@Test
+	public void testLegalMainLine() {
+		SanLineValidator.Result result = validate(Board.FEN_START_POSITION, "e4", "e5", "Nf3", "Nc6", "Bb5");
+		assertTrue(result.isLegal());
+		assertEquals(-1, result.illegalPly);
+		assertEquals(-1, result.illegalTokenIndex);
+		assertEquals(fenAfter(Board.FEN_START_POSITION, "e4", "e5", "Nf3", "Nc6", "Bb5"), result.position.getFen());
+	}
+
+	@Test
+	public void testIllegalMove() {
+		assertIllegal(validate(Board.FEN_START_POSITION, "e4", "e5", "Ke3", "Nc6"),
+				2, 2, fenAfter(Board.FEN_START_POSITION, "e4", "e5"));
+		assertIllegal(validate(Board.FEN_START_POSITION, "e4", "xx"),
+				1, 1, fenAfter(Board.FEN_START_POSITION, "e4"));
+	}
+
+	@Test
+	public void testVariations() {
+		// The final position is the one at the end of the main line
+		SanLineValidator.Result result = validate(Board.FEN_START_POSITION,
+				"e4", "e5", OPEN, "c5", "Nf3", OPEN, "c3", CLOSE, CLOSE, "Nf3", "Nc6");
+		assertTrue(result.isLegal());
+		assertEquals(fenAfter(Board.FEN_START_POSITION, "e4", "e5", "Nf3", "Nc6"), result.position.getFen());
+	}
+
+	@Test
+	public void testIllegalMoveInVariation() {
+		// The ply counts the moves from the start position along the variation, not the tokens
+		assertIllegal(validate(Board.FEN_START_POSITION, "e4", "e5", OPEN, "c5", "Nf6", CLOSE, "Nf3"),
+				2, 4, fenAfter(Board.FEN_START_POSITION, "e4", "c5"));
+		assertIllegal(validate(Board.FEN_START_POSITION, "e4", "e5", OPEN, "c5", CLOSE, "Nf3", "Nf3"),
+				3, 6, fenAfter(Board.FEN_START_POSITION, "e4", "e5", "Nf3"));
+	}
+
+	@Test
+	public void testMisplacedMarkers() {
+		assertIllegal(validate(Board.FEN_START_POSITION, OPEN, "e4", CLOSE),
+				0, 0, Board.FEN_START_POSITION);
+		assertIllegal(validate(Board.FEN_START_POSITION, "e4", CLOSE),
+				1, 1, fenAfter(Board.FEN_START_POSITION, "e4"));
+		// Unclosed variations are reported after the last token
+		assertIllegal(validate(Board.FEN_START_POSITION, "e4", OPEN, "d4"),
+				1, 3, fenAfter(Board.FEN_START_POSITION, "d4"));
+	}
+
+	@Test
+	public void testPlyFromStartPosition() {
+		String fen = "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3";
+		assertIllegal(validate(fen, "Bb5", "a6", "Bxa6", "Nf6", "Bxb7", "Qxb7", "Qe2"),
+				5, 5, fenAfter(fen, "Bb5", "a6", "Bxa6", "Nf6", "Bxb7"));
+	}
+}
@@ -0,0 +1,151 @@
+package com.alonsoruibal.chess.bitboard;
+
+import com.alonsoruibal.chess.Board;
+import com.alonsoruibal.chess.Move;
+import com.alonsoruibal.chess.Square;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The attacks built in a reused instance, as in the search nodes, must be the same as a full build in a new one,
+ * and both must match the attacks of each piece calculated with BitboardAttacks
+ */
+public class AttacksInfoTest {
+	private static final String[] FENS = {
+			Board.FEN_START_POSITION,
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+			"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+			"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+			"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+			"8/8/8/K2pP2r/8/8/8/7k w - d6 0 1",
+	};
+
+	private final int[][] moves = new int[3][256];
+	// One instance per ply, reused for all the positions of that ply like the search nodes
+	private final AttacksInfo[] stack = {new AttacksInfo(), new AttacksInfo(), new AttacksInfo()};
+
+	@Test
+	public void testStackEqualsFullBuild() {
+		Board board = new Board();
+		for (String fen : FENS) {
+			board.setFen(fen);
+			stack[2].build(board);
+			assertSameAttacks(board, stack[2]);
+			checkChildren(board, 2);
+		}
+	}
+
+	@Test
+	public void testRandomGames() {
+		Random random = new Random(1);
+		Board board = new Board();
+		int[] gameMoves = new int[256];
+		for (int game = 0; game < 100; game++) {
+			if (game % 2 == 0) {
+				board.startPosition();
+			} else {
+				board.startPosition(random.nextInt(960));
+			}
+			for (int ply = 0; ply < 150; ply++) {
+				stack[1].build(board);
+				assertSameAttacks(board, stack[1]);
+				checkChildren(board, 1);
+
+				int moveCount = board.getLegalMoves(gameMoves);
+				if (moveCount == 0 || board.isDraw()) {
+					break;
+				}
+				board.doMove(gameMoves[random.nextInt(moveCount)], false, false);
+			}
+		}
+	}
+
+	private void checkChildren(Board board, int depth) {
+		int[] depthMoves = moves[depth];
+		int moveCount = board.getLegalMoves(depthMoves);
+		if (!board.getCheck()) {
+			depthMoves[moveCount++] = Move.NULL;
+		}
+		AttacksInfo child = stack[depth - 1];
+		for (int i = 0; i < moveCount; i++) {
+			board.doMove(depthMoves[i], false, false);
+			child.build(board);
+			assertSameAttacks(board, child);
+			if (depth > 1) {
+				checkChildren(board, depth - 1);
+			}
+			board.undoMove();
+		}
+	}
+
+	private static void assertSameAttacks(Board board, AttacksInfo actual) {
+		AttacksInfo expected = new AttacksInfo();
+		expected.build(board);
+		String fen = board.getFen();
+		assertPieceAttacks(board, expected);
+
+		assertArrayEquals(fen, expected.attacksFromSquare, actual.attacksFromSquare);
+		assertArrayEquals(fen, expected.attackedSquaresAlsoPinned, actual.attackedSquaresAlsoPinned);
+		assertArrayEquals(fen, expected.attackedSquares, actual.attackedSquares);
+		assertArrayEquals(fen, expected.pawnAttacks, actual.pawnAttacks);
+		assertArrayEquals(fen, expected.knightAttacks, actual.knightAttacks);
+		assertArrayEquals(fen, expected.bishopAttacks, actual.bishopAttacks);
+		assertArrayEquals(fen, expected.rookAttacks, actual.rookAttacks);
+		assertArrayEquals(fen, expected.queenAttacks, actual.queenAttacks);
+		assertArrayEquals(fen, expected.kingAttacks, actual.kingAttacks);
+		assertArrayEquals(fen, expected.kingIndex, actual.kingIndex);
+		assertArrayEquals(fen, expected.bishopAttacksKing, actual.bishopAttacksKing);
+		assertArrayEquals(fen, expected.rookAttacksKing, actual.rookAttacksKing);
+		assertArrayEquals(fen, expected.mayPin, actual.mayPin);
+		assertEquals(fen, expected.piecesGivingCheck, actual.piecesGivingCheck);
+		assertEquals(fen, expected.interposeCheckSquares, actual.interposeCheckSquares);
+		assertEquals(fen, expected.pinnedPieces, actual.pinnedPieces);
+		long pinned = expected.pinnedPieces;
+		while (pinned != 0) {
+			long square = BitboardUtils.lsb(pinned);
+			pinned ^= square;
+			int index = BitboardUtils.square2Index(square);
+			assertEquals(fen, expected.pinnedMobility[index], actual.pinnedMobility[index]);
+		}
+	}
+
+	/**
+	 * Checks the attacks of each piece and the checking pieces against BitboardAttacks
+	 */
+	private static void assertPieceAttacks(Board board, AttacksInfo ai) {
+		BitboardAttacks bbAttacks = BitboardAttacks.getInstance();
+		String fen = board.getFen();
+		long all = board.getAll();
+		long[] alsoPinned = {0, 0};
+		for (int index = 0; index < 64; index++) {
+			long square = 1L << index;
+			long pieceAttacks = 0;
+			int color = (board.whites & square) != 0 ? AttacksInfo.W : AttacksInfo.B;
+			if ((square & board.pawns) != 0) {
+				pieceAttacks = bbAttacks.pawn[color][index];
+			} else if ((square & board.knights) != 0) {
+				pieceAttacks = bbAttacks.knight[index];
+			} else if ((square & board.bishops) != 0) {
+				pieceAttacks = bbAttacks.getBishopAttacks(index, all);
+			} else if ((square & board.rooks) != 0) {
+				pieceAttacks = bbAttacks.getRookAttacks(index, all);
+			} else if ((square & board.queens) != 0) {
+				pieceAttacks = bbAttacks.getRookAttacks(index, all) | bbAttacks.getBishopAttacks(index, all);
+			} else if ((square & board.kings) != 0) {
+				pieceAttacks = bbAttacks.king[index];
+			}
+			long pinnedSquares = (square & ai.pinnedPieces) != 0 ? ai.pinnedMobility[index] : Square.ALL;
+			assertEquals(fen, pieceAttacks & pinnedSquares, ai.attacksFromSquare[index]);
+			alsoPinned[color] |= pieceAttacks;
+		}
+		assertArrayEquals(fen, alsoPinned, ai.attackedSquaresAlsoPinned);
+
+		int myKingIndex = BitboardUtils.square2Index(board.kings & board.getMines());
+		assertEquals(fen, bbAttacks.getIndexAttacks(board, myKingIndex) & board.getOthers(), ai.piecesGivingCheck);
+	}
+}
@@ -0,0 +1,89 @@
+package com.alonsoruibal.chess.movegen;
+
+import com.alonsoruibal.chess.Board;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Perft reference positions from https://www.chessprogramming.org/Perft_Results
+ */
+public class PerftTest {
+	private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+	private static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+	private static final String POSITION_4 = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+	private static final String POSITION_5 = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+	private static final String POSITION_6 = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+
+	private static Board board(String fen) {
+		Board board = new Board();
+		board.setFen(fen);
+		return board;
+	}
+
+	private static void assertPerft(String fen, long... nodes) {
+		Board board = board(fen);
+		for (int depth = 1; depth <= nodes.length; depth++) {
+			assertEquals(fen + " depth " + depth, nodes[depth - 1], board.perft(depth));
+		}
+		assertEquals("board modified by perft", fen, board.getFen());
+	}
+
+	@Test
+	public void testStartPosition() {
+		assertPerft(Board.FEN_START_POSITION, 20, 400, 8902, 197281);
+	}
+
+	@Test
+	public void testKiwipete() {
+		assertPerft(KIWIPETE, 48, 2039, 97862);
+	}
+
+	@Test
+	public void testPosition3() {
+		assertPerft(POSITION_3, 14, 191, 2812, 43238, 674624);
+	}
+
+	@Test
+	public void testPosition4() {
+		assertPerft(POSITION_4, 6, 264, 9467, 422333);
+	}
+
+	@Test
+	public void testPosition5() {
+		assertPerft(POSITION_5, 44, 1486, 62379);
+	}
+
+	@Test
+	public void testPosition6() {
+		assertPerft(POSITION_6, 46, 2079, 89890);
+	}
+
+	@Test
+	public void testDivide() {
+		Map<String, Long> divide = board(KIWIPETE).perftDivide(2);
+		assertEquals(48, divide.size());
+		long nodes = 0;
+		for (long moveNodes : divide.values()) {
+			nodes += moveNodes;
+		}
+		assertEquals(2039, nodes);
+		assertEquals(Long.valueOf(36), divide.get("e2a6"));
+	}
+
+	@Test
+	public void testHash() {
+		Perft perft = new Perft(1 << 16);
+		assertEquals(4085603, perft.perft(board(KIWIPETE), 4));
+		assertEquals(3894594, perft.perft(board(POSITION_6), 4));
+	}
+
+	@Test
+	public void testParallel() {
+		assertEquals(2103487, new Perft().perftParallel(board(POSITION_5), 4));
+		assertEquals(4085603, new Perft(1 << 16).perftParallel(board(KIWIPETE), 4));
+	}
+}
@@ -0,0 +1,200 @@
+package com.alonsoruibal.chess.search;
+
+import com.alonsoruibal.chess.Board;
+import com.alonsoruibal.chess.Config;
+import com.alonsoruibal.chess.Move;
+import com.alonsoruibal.chess.Position;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncSearchEngineTest {
+	private static final long TIMEOUT_MS = 10000;
+
+	private static Config config(int threads) {
+		Config config = new Config();
+		config.setUseBook(false);
+		config.setThreads(threads);
+		return config;
+	}
+
+	private static Position startPosition() {
+		Board board = new Board();
+		board.startPosition();
+		return board.snapshot();
+	}
+
+	private static SearchParameters infinite() {
+		SearchParameters searchParameters = new SearchParameters();
+		searchParameters.setInfinite(true);
+		return searchParameters;
+	}
+
+	private static void waitUntilRunning(SearchFuture future) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (!future.isRunning() || future.getLastInfo() == null) {
+			assertTrue("the search did not start", System.currentTimeMillis() < deadline);
+			Thread.sleep(5);
+		}
+	}
+
+	private static void assertLegal(Position position, int move) {
+		Board board = new Board();
+		board.restore(position);
+		assertTrue(Move.toString(move), move != Move.NONE && board.getLegalMove(move) != Move.NONE);
+	}
+
+	private static int countSearchThreads() {
+		int count = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.isAlive() && (thread.getName().startsWith("AsyncSearchEngine") || thread.getName().startsWith("SearchEngine helper"))) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Test
+	public void testQueueRejects() throws Exception {
+		AsyncSearchEngine engine = new AsyncSearchEngine(config(1), 1);
+		try {
+			SearchFuture running = engine.go(startPosition(), infinite(), null);
+			waitUntilRunning(running);
+			SearchFuture pending = engine.go(startPosition(), infinite(), null);
+			try {
+				engine.go(startPosition(), infinite(), null);
+				fail("the queue accepted more than maxPending searches");
+			} catch (RejectedExecutionException expected) {
+			}
+			assertFalse(pending.isRunning());
+			assertFalse(pending.isDone());
+		} finally {
+			engine.destroy();
+		}
+	}
+
+	@Test
+	public void testStopResolvesWithMove() throws Exception {
+		AsyncSearchEngine engine = new AsyncSearchEngine(config(1));
+		try {
+			Position position = startPosition();
+			final int[] observed = {Move.NONE};
+			final CountDownLatch bestMoveSent = new CountDownLatch(1);
+			SearchFuture future = engine.go(position, infinite(), new SearchObserver() {
+				@Override
+				public void info(SearchStatusInfo info) {
+				}
+
+				@Override
+				public void bestMove(int bestMove, int ponder) {
+					observed[0] = bestMove;
+					bestMoveSent.countDown();
+				}
+			});
+			waitUntilRunning(future);
+			engine.stop();
+			int move = future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+			assertLegal(position, move);
+			// The future resolves before the observer is notified
+			assertTrue(bestMoveSent.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+			assertEquals(move, observed[0]);
+			assertTrue(future.isDone());
+			assertFalse(future.isCancelled());
+		} finally {
+			engine.destroy();
+		}
+	}
+
+	@Test
+	public void testStopBeforeStart() throws Exception {
+		AsyncSearchEngine engine = new AsyncSearchEngine(config(1));
+		try {
+			Position position = startPosition();
+			SearchFuture running = engine.go(position, infinite(), null);
+			SearchFuture pending = engine.go(position, infinite(), null);
+			pending.stop();
+			waitUntilRunning(running);
+			running.stop();
+			assertLegal(position, running.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+			// A search stopped while pending still searches the first depth
+			assertLegal(position, pending.get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+		} finally {
+			engine.destroy();
+		}
+	}
+
+	@Test
+	public void testCancelDiscardsResult() throws Exception {
+		AsyncSearchEngine engine = new AsyncSearchEngine(config(1));
+		try {
+			final boolean[] notified = {false};
+			SearchObserver observer = new SearchObserver() {
+				@Override
+				public void info(SearchStatusInfo info) {
+				}
+
+				@Override
+				public void bestMove(int bestMove, int ponder) {
+					notified[0] = true;
+				}
+			};
+			SearchFuture running = engine.go(startPosition(), infinite(), observer);
+			SearchFuture pending = engine.go(startPosition(), infinite(), observer);
+			waitUntilRunning(running);
+
+			assertTrue(pending.cancel(false));
+			assertTrue(running.cancel(false));
+			assertFalse(running.cancel(false));
+			for (SearchFuture future : new SearchFuture[]{running, pending}) {
+				assertTrue(future.isCancelled());
+				assertTrue(future.isDone());
+				try {
+					future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+					fail("a cancelled search returned a result");
+				} catch (CancellationException expected) {
+				}
+			}
+
+			// The engine is free for the next search once the cancelled one ends
+			SearchParameters searchParameters = new SearchParameters();
+			searchParameters.setDepth(3);
+			assertLegal(startPosition(), engine.go(startPosition(), searchParameters, null).get(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+			assertFalse(notified[0]);
+		} finally {
+			engine.destroy();
+		}
+	}
+
+	@Test
+	public void testNoLeftoverThreads() throws Exception {
+		int before = countSearchThreads();
+		AsyncSearchEngine engine = new AsyncSearchEngine(config(2));
+		SearchFuture running = engine.go(startPosition(), infinite(), null);
+		SearchFuture pending = engine.go(startPosition(), infinite(), null);
+		waitUntilRunning(running);
+		assertTrue(countSearchThreads() > before);
+
+		engine.destroy();
+		assertTrue(running.isCancelled());
+		assertTrue(pending.isCancelled());
+		try {
+			engine.go(startPosition(), infinite(), null);
+			fail("a destroyed engine accepted a search");
+		} catch (RejectedExecutionException expected) {
+		}
+		long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+		while (countSearchThreads() > before) {
+			assertTrue("search threads still alive after destroy", System.currentTimeMillis() < deadline);
+			Thread.sleep(10);
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package com.alonsoruibal.chess.search;
+
+import com.alonsoruibal.chess.Board;
+import com.alonsoruibal.chess.Config;
+import com.alonsoruibal.chess.Move;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MultiPvTest {
+	private static final String BACK_RANK_MATE = "6k1/5ppp/8/8/8/8/5PPP/R5K1 w - - 0 1";
+	private static final String THREE_MATES = "7k/8/6KQ/8/8/8/8/8 w - - 0 1";
+	private static final String THREE_KING_MOVES = "7k/8/8/8/8/8/8/K4R2 b - - 0 1";
+
+	private final List<List<SearchStatusInfo>> iterations = new ArrayList<>();
+	private int bestMove = Move.NONE;
+
+	private void search(String fen, int depth, int multiPv) {
+		Config config = new Config();
+		config.setUseBook(false);
+		SearchEngine engine = new SearchEngine(config);
+		engine.setObserver(new SearchObserver() {
+			@Override
+			public void info(SearchStatusInfo info) {
+			}
+
+			@Override
+			public void bestMove(int bestMove, int ponder) {
+				MultiPvTest.this.bestMove = bestMove;
+			}
+
+			@Override
+			public void multiPv(List<SearchStatusInfo> lines) {
+				iterations.add(lines);
+			}
+		});
+		engine.getBoard().setFen(fen);
+		SearchParameters searchParameters = new SearchParameters();
+		searchParameters.setDepth(depth);
+		searchParameters.setMultiPv(multiPv);
+		engine.go(searchParameters);
+		engine.destroy();
+	}
+
+	private static String firstMove(SearchStatusInfo info) {
+		return info.getPv().split(" ")[0];
+	}
+
+	private List<SearchStatusInfo> lastIteration() {
+		return iterations.get(iterations.size() - 1);
+	}
+
+	@Test
+	public void testLinesRankedAndDistinct() {
+		search(Board.FEN_START_POSITION, 6, 3);
+		assertEquals(6, iterations.size());
+		for (List<SearchStatusInfo> lines : iterations) {
+			assertEquals(3, lines.size());
+			Set<String> firstMoves = new HashSet<>();
+			for (int i = 0; i < lines.size(); i++) {
+				assertEquals(i + 1, lines.get(i).getMultiPv());
+				assertTrue("repeated root move", firstMoves.add(firstMove(lines.get(i))));
+				if (i > 0) {
+					assertTrue("lines not ranked", lines.get(i).getScore() <= lines.get(i - 1).getScore());
+				}
+			}
+		}
+		assertEquals(Move.toString(bestMove), firstMove(lastIteration().get(0)));
+	}
+
+	@Test
+	public void testBestLineIsTheMate() {
+		search(BACK_RANK_MATE, 6, 3);
+		List<SearchStatusInfo> lines = lastIteration();
+		assertEquals("a1a8", firstMove(lines.get(0)));
+		assertTrue(lines.get(0).isMate());
+		assertEquals(1, lines.get(0).getMateIn());
+		assertFalse(lines.get(1).isMate());
+		assertEquals("a1a8", Move.toString(bestMove));
+	}
+
+	@Test
+	public void testAllTheMates() {
+		search(THREE_MATES, 4, 4);
+		List<SearchStatusInfo> lines = lastIteration();
+		Set<String> mates = new HashSet<>();
+		for (int i = 0; i < 3; i++) {
+			assertTrue(lines.get(i).isMate());
+			assertEquals(1, lines.get(i).getMateIn());
+			mates.add(firstMove(lines.get(i)));
+		}
+		assertEquals(3, mates.size());
+		assertTrue(mates.contains("h6f8"));
+		assertTrue(mates.contains("h6h7"));
+		assertTrue(mates.contains("h6g7"));
+		assertFalse(lines.get(3).isMate() && lines.get(3).getMateIn() == 1);
+	}
+
+	@Test
+	public void testLinesLimitedByLegalMoves() {
+		search(THREE_KING_MOVES, 4, 5);
+		assertEquals(3, lastIteration().size());
+	}
+
+	@Test
+	public void testSingleLine() {
+		search(Board.FEN_START_POSITION, 4, 1);
+		assertTrue(iterations.isEmpty());
+		assertTrue(bestMove != Move.NONE);
+	}
+}
@@ -0,0 +1,167 @@
+package com.alonsoruibal.chess.search;
+
+import com.alonsoruibal.chess.Board;
+import com.alonsoruibal.chess.Config;
+import com.alonsoruibal.chess.Move;
+import com.alonsoruibal.chess.Piece;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimeManagerTest {
+	private static final long MS = 1000000;
+	private static final int MOVE_A = Move.genMove(12, 28, Piece.PAWN, false, 0);
+	private static final int MOVE_B = Move.genMove(11, 27, Piece.PAWN, false, 0);
+
+	/**
+	 * The time only advances when the test sets it
+	 */
+	private static class FakeClock implements TimeManager.Clock {
+		long nanos = 1000 * MS;
+
+		@Override
+		public long nanoTime() {
+			return nanos;
+		}
+	}
+
+	private final FakeClock clock = new FakeClock();
+	private long nodes;
+
+	private boolean isHardDeadlineReached(TimeManager timeManager) {
+		nodes += TimeManager.CHECK_NODES;
+		return timeManager.isHardDeadlineReached(nodes);
+	}
+
+	private TimeManager start(SearchParameters searchParameters) {
+		TimeManager timeManager = new TimeManager(clock);
+		timeManager.start();
+		timeManager.update(searchParameters, true);
+		return timeManager;
+	}
+
+	private static SearchParameters clock(int time) {
+		SearchParameters searchParameters = new SearchParameters();
+		searchParameters.setWtime(time);
+		searchParameters.setBtime(time);
+		return searchParameters;
+	}
+
+	@Test
+	public void testNotManaged() {
+		SearchParameters depth = new SearchParameters();
+		depth.setDepth(5);
+		SearchParameters infinite = new SearchParameters();
+		infinite.setInfinite(true);
+		SearchParameters ponder = clock(10);
+		ponder.setPonder(true);
+
+		for (SearchParameters searchParameters : new SearchParameters[]{depth, infinite, ponder}) {
+			TimeManager timeManager = start(searchParameters);
+			assertFalse(timeManager.isManaged());
+			clock.nanos += 1000000 * MS;
+			assertFalse(timeManager.isHardDeadlineReached(TimeManager.CHECK_NODES));
+			assertFalse(timeManager.iterationCompleted(10, MOVE_A, 0, 1000 * MS));
+		}
+	}
+
+	@Test
+	public void testMoveTime() {
+		SearchParameters searchParameters = new SearchParameters();
+		searchParameters.setMoveTime(30);
+		TimeManager timeManager = start(searchParameters);
+		assertFalse(timeManager.isManaged());
+		clock.nanos += 30 * MS;
+		assertFalse(isHardDeadlineReached(timeManager));
+		clock.nanos++;
+		// The clock is only read every CHECK_NODES nodes
+		assertFalse(timeManager.isHardDeadlineReached(nodes + 1));
+		assertTrue(isHardDeadlineReached(timeManager));
+	}
+
+	@Test
+	public void testHardDeadline() {
+		// 40 ms for the move, scaled by 0.6 before the first iteration: 24 ms soft and 48 ms hard deadlines
+		TimeManager timeManager = start(clock(1000));
+		assertTrue(timeManager.isManaged());
+		clock.nanos += 24 * MS + 1;
+		assertFalse(isHardDeadlineReached(timeManager));
+		clock.nanos += 24 * MS - 1;
+		assertFalse(isHardDeadlineReached(timeManager));
+		clock.nanos++;
+		assertTrue(isHardDeadlineReached(timeManager));
+	}
+
+	@Test
+	public void testSoftDeadline() {
+		// 24 ms soft deadline, the next iteration is estimated by the time of the last one by the branching factor
+		TimeManager timeManager = start(clock(1000));
+		clock.nanos += 10 * MS;
+		// No previous iteration, branching factor 2: 10 + 2 * 5 ms
+		assertFalse(timeManager.iterationCompleted(1, MOVE_A, 20, 5 * MS));
+		clock.nanos += 5 * MS;
+		// Limited to 1.5: 15 + 1.5 * 5 ms
+		assertFalse(timeManager.iterationCompleted(2, MOVE_A, 20, 5 * MS));
+		clock.nanos += 2 * MS;
+		// 17 + 1.5 * 5 ms
+		assertTrue(timeManager.iterationCompleted(3, MOVE_A, 20, 5 * MS));
+	}
+
+	@Test
+	public void testStop() {
+		TimeManager timeManager = start(clock(60000));
+		assertFalse(isHardDeadlineReached(timeManager));
+		timeManager.stop();
+		assertTrue(isHardDeadlineReached(timeManager));
+	}
+
+	/**
+	 * Feeds iterations of 1.2 s with 60 s on the clock without advancing it: the soft deadline is 2.4 s scaled by
+	 * the stability, and the next iteration is estimated in 1.8 s
+	 */
+	private boolean runIterations(int[] bestMoves, int[] scores) {
+		TimeManager timeManager = start(clock(60000));
+		boolean stop = false;
+		for (int i = 0; i < bestMoves.length; i++) {
+			stop = timeManager.iterationCompleted(i + 1, bestMoves[i], scores[i], 1200 * MS);
+		}
+		return stop;
+	}
+
+	@Test
+	public void testStableSearchStops() {
+		assertTrue(runIterations(new int[]{MOVE_A, MOVE_A, MOVE_A, MOVE_A, MOVE_A, MOVE_A, MOVE_A, MOVE_A},
+				new int[]{20, 20, 20, 20, 20, 20, 20, 20}));
+	}
+
+	@Test
+	public void testBestMoveChangesExtend() {
+		assertFalse(runIterations(new int[]{MOVE_A, MOVE_A, MOVE_A, MOVE_A, MOVE_B, MOVE_A, MOVE_B, MOVE_A},
+				new int[]{20, 20, 20, 20, 20, 20, 20, 20}));
+	}
+
+	@Test
+	public void testScoreDropExtends() {
+		assertFalse(runIterations(new int[]{MOVE_A, MOVE_A, MOVE_A, MOVE_A, MOVE_A, MOVE_A, MOVE_A, MOVE_A},
+				new int[]{20, 20, 20, 20, 20, 20, 20, -130}));
+	}
+
+	@Test
+	public void testSearchRespectsMoveTime() {
+		Config config = new Config();
+		config.setUseBook(false);
+		SearchEngine engine = new SearchEngine(config);
+		engine.getBoard().setFen(Board.FEN_START_POSITION);
+		SearchParameters searchParameters = new SearchParameters();
+		searchParameters.setMoveTime(100);
+		long start = System.nanoTime();
+		engine.go(searchParameters);
+		long elapsed = (System.nanoTime() - start) / MS;
+		// Only a smoke test with the real clock, the bound leaves room for a loaded machine
+		assertTrue(elapsed + " ms", elapsed >= 100 && elapsed < 5000);
+		assertTrue(engine.getBestMove() != Move.NONE);
+		engine.destroy();
+	}
+}
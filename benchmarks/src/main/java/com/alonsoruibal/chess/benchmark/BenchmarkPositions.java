@@ -0,0 +1,71 @@
+package com.alonsoruibal.chess.benchmark;
+
+import com.alonsoruibal.chess.Board;
+import com.alonsoruibal.chess.Move;
+
+import java.util.Random;
+
+/**
+ * Positions shared by the benchmarks, selected by name in the @Param annotations
+ */
+public class BenchmarkPositions {
+	public static final String START = "start";
+	public static final String KIWIPETE = "kiwipete";
+	public static final String MIDDLEGAME = "middlegame";
+	public static final String ENDGAME = "endgame";
+
+	public static String getFen(String name) {
+		switch (name) {
+			case START:
+				return Board.FEN_START_POSITION;
+			case KIWIPETE:
+				return "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+			case MIDDLEGAME:
+				return "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+			case ENDGAME:
+				return "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+		}
+		throw new IllegalArgumentException("Unknown position " + name);
+	}
+
+	public static Board getBoard(String name) {
+		Board board = new Board();
+		board.setFen(getFen(name));
+		return board;
+	}
+
+	/**
+	 * FENs of positions reached with random games from the standard and the chess960 start positions, always the same
+	 * for the same seed. Captures and promotions are preferred, so the corpus covers the material and castling states
+	 * from the opening to the endgame.
+	 */
+	public static String[] getCorpus(int size, long seed) {
+		Random random = new Random(seed);
+		Board board = new Board();
+		int[] moves = new int[256];
+		String[] fens = new String[size];
+		for (int i = 0; i < size; i++) {
+			if (random.nextInt(4) == 0) {
+				board.startPosition(random.nextInt(960));
+			} else {
+				board.startPosition();
+			}
+			int plies = random.nextInt(160);
+			for (int ply = 0; ply < plies; ply++) {
+				int moveCount = board.getLegalMoves(moves);
+				if (moveCount == 0 || board.isDraw()) {
+					break;
+				}
+				int move = moves[random.nextInt(moveCount)];
+				for (int j = 0; j < moveCount; j++) {
+					if ((Move.isCapture(moves[j]) || Move.isPromotion(moves[j])) && random.nextInt(8) == 0) {
+						move = moves[j];
+					}
+				}
+				board.doMove(move, false, false);
+			}
+			fens[i] = board.getFen();
+		}
+		return fens;
+	}
+}
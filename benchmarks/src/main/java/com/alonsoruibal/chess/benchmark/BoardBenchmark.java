@@ -0,0 +1,70 @@
+package com.alonsoruibal.chess.benchmark;
+
+import com.alonsoruibal.chess.Board;
+import com.alonsoruibal.chess.movegen.LegalMoveGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Board.doMove/undoMove of all the legal moves of a position, and the board allocation (use -prof gc for the bytes)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+	@Param({BenchmarkPositions.START, BenchmarkPositions.KIWIPETE, BenchmarkPositions.MIDDLEGAME, BenchmarkPositions.ENDGAME})
+	public String position;
+
+	private Board board;
+	private final int[] moves = new int[256];
+	private int moveCount;
+
+	@Setup
+	public void setup() {
+		board = BenchmarkPositions.getBoard(position);
+		moveCount = new LegalMoveGenerator().generateMoves(board, moves, 0);
+	}
+
+	@Benchmark
+	public long doUndoMove() {
+		long keys = 0;
+		for (int i = 0; i < moveCount; i++) {
+			board.doMove(moves[i], false, false);
+			keys ^= board.getKey();
+			board.undoMove();
+		}
+		return keys;
+	}
+
+	@Benchmark
+	public long doUndoMoveVerifyCheck() {
+		long keys = 0;
+		for (int i = 0; i < moveCount; i++) {
+			if (board.doMove(moves[i], true, false)) {
+				keys ^= board.getKey();
+				board.undoMove();
+			}
+		}
+		return keys;
+	}
+
+	@Benchmark
+	public Board newBoard() {
+		return new Board();
+	}
+}
@@ -0,0 +1,69 @@
+package com.alonsoruibal.chess.benchmark;
+
+import com.alonsoruibal.chess.Board;
+import com.alonsoruibal.chess.bitboard.AttacksInfo;
+import com.alonsoruibal.chess.evaluation.CompleteEvaluator;
+import com.alonsoruibal.chess.evaluation.Evaluator;
+import com.alonsoruibal.chess.evaluation.ExperimentalEvaluator;
+import com.alonsoruibal.chess.evaluation.SimplifiedEvaluator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluator.evaluate of each evaluator, with the names used in Config. The attacks are already built for the
+ * position, as in the search, and the attacksInfo benchmark measures building them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluatorBenchmark {
+	@Param({"simplified", "complete", "experimental"})
+	public String evaluator;
+
+	@Param({BenchmarkPositions.START, BenchmarkPositions.KIWIPETE, BenchmarkPositions.MIDDLEGAME, BenchmarkPositions.ENDGAME})
+	public String position;
+
+	private Board board;
+	private Evaluator instance;
+	private final AttacksInfo attacksInfo = new AttacksInfo();
+
+	@Setup
+	public void setup() {
+		board = BenchmarkPositions.getBoard(position);
+		if ("simplified".equals(evaluator)) {
+			instance = new SimplifiedEvaluator();
+		} else if ("complete".equals(evaluator)) {
+			instance = new CompleteEvaluator();
+		} else if ("experimental".equals(evaluator)) {
+			instance = new ExperimentalEvaluator();
+		}
+		attacksInfo.build(board);
+	}
+
+	@Benchmark
+	public int evaluate() {
+		return instance.evaluate(board, attacksInfo);
+	}
+
+	@Benchmark
+	public long attacksInfo() {
+		attacksInfo.boardKey = 0;
+		attacksInfo.build(board);
+		return attacksInfo.attackedSquares[AttacksInfo.W];
+	}
+}
@@ -0,0 +1,66 @@
+package com.alonsoruibal.chess.benchmark;
+
+import com.alonsoruibal.chess.Board;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FEN parsing and formatting. getFen is cached by the board until the position changes,
+ * so setFenGetFen measures the formatting of a new position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FenBenchmark {
+	@Param({BenchmarkPositions.START, BenchmarkPositions.KIWIPETE, BenchmarkPositions.MIDDLEGAME, BenchmarkPositions.ENDGAME})
+	public String position;
+
+	private String fen;
+	private Board board;
+
+	@Setup
+	public void setup() {
+		fen = BenchmarkPositions.getFen(position);
+		board = new Board();
+		board.setFen(fen);
+	}
+
+	@Benchmark
+	public long setFen() {
+		board.setFen(fen);
+		return board.getKey();
+	}
+
+	@Benchmark
+	public String setFenGetFen() {
+		board.setFen(fen);
+		return board.getFen();
+	}
+
+	@Benchmark
+	public String getFen() {
+		return board.getFen();
+	}
+
+	@Benchmark
+	public Board newBoardSetFen() {
+		Board board = new Board();
+		board.setFen(fen);
+		return board;
+	}
+}
@@ -0,0 +1,82 @@
+package com.alonsoruibal.chess.benchmark;
+
+import com.alonsoruibal.chess.Board;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FEN parsing and formatting over a corpus of generated positions, so the branches for the castling rights,
+ * en passant squares and piece placements are not trained on a few FENs. The scores are per FEN.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FenCorpusBenchmark {
+	private static final int CORPUS_SIZE = 4096;
+	private static final long CORPUS_SEED = 3;
+
+	private String[] fens;
+	private Board board;
+	private Board[] boards;
+
+	@Setup
+	public void setup() {
+		fens = BenchmarkPositions.getCorpus(CORPUS_SIZE, CORPUS_SEED);
+		board = new Board();
+		boards = new Board[CORPUS_SIZE];
+		for (int i = 0; i < CORPUS_SIZE; i++) {
+			boards[i] = new Board();
+			boards[i].setFen(fens[i]);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CORPUS_SIZE)
+	public long setFen() {
+		long keys = 0;
+		for (String fen : fens) {
+			board.setFen(fen);
+			keys ^= board.getKey();
+		}
+		return keys;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CORPUS_SIZE)
+	public int setFenGetFen() {
+		int length = 0;
+		for (String fen : fens) {
+			board.setFen(fen);
+			length += board.getFen().length();
+		}
+		return length;
+	}
+
+	/**
+	 * Each board keeps its FEN cached after the first call, so this measures the cached path
+	 */
+	@Benchmark
+	@OperationsPerInvocation(CORPUS_SIZE)
+	public int getFen() {
+		int length = 0;
+		for (Board board : boards) {
+			length += board.getFen().length();
+		}
+		return length;
+	}
+}
@@ -0,0 +1,67 @@
+package com.alonsoruibal.chess.benchmark;
+
+import com.alonsoruibal.chess.Board;
+import com.alonsoruibal.chess.movegen.LegalMoveGenerator;
+import com.alonsoruibal.chess.movegen.MagicMoveGenerator;
+import com.alonsoruibal.chess.movegen.Perft;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Legal and pseudo-legal move generation, and a perft without hash table over the whole tree.
+ * The legal move generator keeps the attacks of the last position, so each operation generates the moves
+ * of the position and of the position after its first legal move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenerationBenchmark {
+	@Param({BenchmarkPositions.START, BenchmarkPositions.KIWIPETE, BenchmarkPositions.MIDDLEGAME, BenchmarkPositions.ENDGAME})
+	public String position;
+
+	private Board board;
+	private Board child;
+	private final int[] moves = new int[256];
+	private final LegalMoveGenerator legalMoveGenerator = new LegalMoveGenerator();
+	private final MagicMoveGenerator magicMoveGenerator = new MagicMoveGenerator();
+	private final Perft perft = new Perft();
+
+	@Setup
+	public void setup() {
+		board = BenchmarkPositions.getBoard(position);
+		child = BenchmarkPositions.getBoard(position);
+		legalMoveGenerator.generateMoves(child, moves, 0);
+		child.doMove(moves[0], false, false);
+	}
+
+	@Benchmark
+	public int legalMoves() {
+		return legalMoveGenerator.generateMoves(board, moves, 0) + legalMoveGenerator.generateMoves(child, moves, 0);
+	}
+
+	@Benchmark
+	public int pseudoLegalMoves() {
+		return magicMoveGenerator.generateMoves(board, moves, 0) + magicMoveGenerator.generateMoves(child, moves, 0);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public long perft3() {
+		return perft.perft(board, 3);
+	}
+}
@@ -0,0 +1,77 @@
+package com.alonsoruibal.chess.benchmark;
+
+import com.alonsoruibal.chess.Config;
+import com.alonsoruibal.chess.log.Logger;
+import com.alonsoruibal.chess.search.SearchEngine;
+import com.alonsoruibal.chess.search.SearchParameters;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full fixed depth searches from a cleared engine, so each single thread search visits the same nodes.
+ * The searched nodes, of all the threads, are reported as an extra counter, so JMH also prints the nodes per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SearchBenchmark {
+	@Param({BenchmarkPositions.START, BenchmarkPositions.KIWIPETE, BenchmarkPositions.MIDDLEGAME, BenchmarkPositions.ENDGAME})
+	public String position;
+
+	@Param({"10"})
+	public int depth;
+
+	// Lazy SMP scaling, i.e. -p threads=1,2,4,8
+	@Param({"1"})
+	public int threads;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Counters {
+		public long nodes;
+	}
+
+	private SearchEngine engine;
+	private final SearchParameters searchParameters = new SearchParameters();
+	private String fen;
+
+	@Setup
+	public void setup() {
+		Logger.noLog = true;
+		Config config = new Config();
+		config.setThreads(threads);
+		engine = new SearchEngine(config);
+		fen = BenchmarkPositions.getFen(position);
+		searchParameters.setDepth(depth);
+	}
+
+	@Setup(Level.Invocation)
+	public void clear() {
+		engine.clear();
+		engine.getBoard().setFen(fen);
+	}
+
+	@Benchmark
+	public int search(Counters counters) {
+		engine.go(searchParameters);
+		counters.nodes += engine.getNodeCount();
+		return engine.getBestMove();
+	}
+}
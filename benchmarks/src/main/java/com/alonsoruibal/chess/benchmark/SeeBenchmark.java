@@ -0,0 +1,81 @@
+package com.alonsoruibal.chess.benchmark;
+
+import com.alonsoruibal.chess.Board;
+import com.alonsoruibal.chess.Move;
+import com.alonsoruibal.chess.bitboard.AttacksInfo;
+import com.alonsoruibal.chess.movegen.LegalMoveGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Static exchange evaluation of all the legal moves of a position, with and without the attacks of the node
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeeBenchmark {
+	@Param({BenchmarkPositions.KIWIPETE, BenchmarkPositions.MIDDLEGAME, BenchmarkPositions.ENDGAME})
+	public String position;
+
+	private Board board;
+	private final AttacksInfo attacksInfo = new AttacksInfo();
+	private final int[] moves = new int[256];
+	private int moveCount;
+	private final int[] captures = new int[256];
+	private int captureCount;
+
+	@Setup
+	public void setup() {
+		board = BenchmarkPositions.getBoard(position);
+		moveCount = new LegalMoveGenerator().generateMoves(board, moves, 0);
+		captureCount = 0;
+		for (int i = 0; i < moveCount; i++) {
+			if (Move.isCapture(moves[i])) {
+				captures[captureCount++] = moves[i];
+			}
+		}
+		attacksInfo.build(board);
+	}
+
+	@Benchmark
+	public int seeCaptures() {
+		int sum = 0;
+		for (int i = 0; i < captureCount; i++) {
+			sum += board.see(captures[i]);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public int seeAllMoves() {
+		int sum = 0;
+		for (int i = 0; i < moveCount; i++) {
+			sum += board.see(moves[i]);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public int seeAllMovesAttacksInfo() {
+		int sum = 0;
+		for (int i = 0; i < moveCount; i++) {
+			sum += board.see(moves[i], attacksInfo);
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,88 @@
+package com.alonsoruibal.chess.benchmark;
+
+import com.alonsoruibal.chess.Board;
+import com.alonsoruibal.chess.Move;
+import com.alonsoruibal.chess.movegen.LegalMoveGenerator;
+import com.alonsoruibal.chess.tt.TranspositionTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TranspositionTable probes and stores over the positions of random games, in a table of sizeMb.
+ * The probe hits look for positions stored in the setup and the probe misses for positions never stored.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TranspositionTableBenchmark {
+	private static final int POSITIONS = 1024;
+
+	@Param({"16", "256"})
+	public int sizeMb;
+
+	private TranspositionTable tt;
+	private Board[] stored;
+	private Board[] notStored;
+	private int index;
+
+	@Setup
+	public void setup() {
+		tt = new TranspositionTable(sizeMb);
+		Random random = new Random(1);
+		stored = randomPositions(random);
+		notStored = randomPositions(random);
+		for (Board board : stored) {
+			tt.set(board, TranspositionTable.TYPE_EXACT_SCORE, 0, 10, Move.NONE, 0, 0, false);
+		}
+	}
+
+	private static Board[] randomPositions(Random random) {
+		LegalMoveGenerator legalMoveGenerator = new LegalMoveGenerator();
+		int[] moves = new int[256];
+		Board[] boards = new Board[POSITIONS];
+		Board board = new Board();
+		board.startPosition();
+		for (int i = 0; i < POSITIONS; i++) {
+			int moveCount = legalMoveGenerator.generateMoves(board, moves, 0);
+			if (moveCount == 0 || board.moveNumber > 200) {
+				board.startPosition();
+				moveCount = legalMoveGenerator.generateMoves(board, moves, 0);
+			}
+			board.doMove(moves[random.nextInt(moveCount)], false, false);
+			boards[i] = new Board();
+			boards[i].restore(board.snapshot());
+		}
+		return boards;
+	}
+
+	@Benchmark
+	public void store() {
+		tt.set(notStored[index++ & (POSITIONS - 1)], TranspositionTable.TYPE_FAIL_HIGH, 0, 5, Move.NONE, 0, 0, false);
+	}
+
+	@Benchmark
+	public boolean probeHit() {
+		return tt.search(stored[index++ & (POSITIONS - 1)], 0, false);
+	}
+
+	@Benchmark
+	public boolean probeMiss() {
+		return tt.search(notStored[index++ & (POSITIONS - 1)], 0, false);
+	}
+}